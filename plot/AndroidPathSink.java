@@ -0,0 +1,66 @@
+package com.waterbear.loglibrary.plot;
+
+import android.graphics.Path;
+
+/**
+ * {@link PathSink} that builds an Android {@link Path} to draw on a canvas.
+ */
+public class AndroidPathSink implements PathSink {
+
+    public static final Factory FACTORY = new Factory() {
+        @Override
+        public PathSink create() {
+            return new AndroidPathSink();
+        }
+    };
+
+    private final Path path;
+
+    public AndroidPathSink() {
+        this(new Path());
+    }
+
+    public AndroidPathSink(Path path) {
+        this.path = path;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * @return Android path holding what a sink was built with, the sink's own path if it is an
+     * {@link AndroidPathSink} and a replay of a {@link PathCommandBuffer}, or null for null
+     * @throws IllegalStateException if the sink can not be turned into an Android path
+     */
+    public static Path toPath(PathSink sink) {
+        if (sink == null) return null;
+        if (sink instanceof AndroidPathSink) return ((AndroidPathSink) sink).getPath();
+        if (!(sink instanceof PathCommandBuffer)) {
+            throw new IllegalStateException("can not draw " + sink.getClass().getSimpleName());
+        }
+        AndroidPathSink replayed = new AndroidPathSink();
+        ((PathCommandBuffer) sink).replay(replayed);
+        return replayed.getPath();
+    }
+
+    @Override
+    public void moveTo(float x, float y) {
+        path.moveTo(x, y);
+    }
+
+    @Override
+    public void lineTo(float x, float y) {
+        path.lineTo(x, y);
+    }
+
+    @Override
+    public void cubicTo(float x1, float y1, float x2, float y2, float x3, float y3) {
+        path.cubicTo(x1, y1, x2, y2, x3, y3);
+    }
+
+    @Override
+    public void rewind() {
+        path.rewind();
+    }
+}
@@ -1,13 +1,23 @@
 package com.waterbear.loglibrary.plot;
 
-import com.google.common.collect.Lists;
+import com.google.visualization.datasource.datatable.value.DateTimeValue;
 import com.google.visualization.datasource.datatable.value.DateValue;
 import com.google.visualization.datasource.datatable.value.NumberValue;
 import com.google.visualization.datasource.datatable.value.Value;
-import com.google.visualization.datasource.query.scalarfunction.DateDiff;
 
+import java.text.NumberFormat;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
 
 /**
  * Translate data to the plot domain, e.g.
@@ -18,10 +28,116 @@ public abstract class AxisAdapter<E extends Value> {
     protected int plotLimitHigh;
     private boolean inverted;
     private boolean boundsSet = false;
+    private double limitLow = 0;
+    private double limitHigh = 0;
+    private double sourceLow = 0;
+    private double sourceHigh = 0;
+    private double scale = 0;
+    private double bias = 0;
+    private int maxTickCount = DEFAULT_MAX_TICK_COUNT;
+    private Ticks ticks;
     private List<AxisChangedListener> listeners = new ArrayList<>();
 
+    static final int DEFAULT_MAX_TICK_COUNT = 5;
+
     public interface AxisChangedListener {
-        void onAxisChanged();
+        /**
+         * Called once per bounds update that changed at least one axis the listener is
+         * registered with.
+         *
+         * @param changed every axis of the update whose bounds changed, including axes the
+         *                listener is not registered with
+         */
+        void onAxisChanged(Set<AxisAdapter> changed);
+    }
+
+    /**
+     * Sets the bounds of one or more axes together and then notifies each listener of the
+     * changed axes once, e.g. when a resize changes both the width and the height of a chart.
+     * Axes whose bounds end up unchanged are left out of the notification.
+     */
+    public static final class BoundsUpdate {
+        private final Map<AxisAdapter, int[]> bounds = new LinkedHashMap<>();
+        private final Map<AxisAdapter, double[]> visibleRanges = new LinkedHashMap<>();
+
+        public BoundsUpdate setBounds(AxisAdapter axis, int lowerBound, int upperBound) {
+            bounds.put(axis, new int[]{lowerBound, upperBound});
+            return this;
+        }
+
+        /**
+         * Show only the source coordinates {@code low..high} between the axis bounds, e.g. to
+         * zoom into or pan along a domain. Use the axis limits to show everything again.
+         */
+        public BoundsUpdate setVisibleRange(AxisAdapter axis, double low, double high) {
+            visibleRanges.put(axis, new double[]{low, high});
+            return this;
+        }
+
+        public void commit() {
+            Set<AxisAdapter> changed = new LinkedHashSet<>();
+            for (Map.Entry<AxisAdapter, double[]> e : visibleRanges.entrySet()) {
+                double[] r = e.getValue();
+                if (e.getKey().applyVisibleRange(r[0], r[1])) {
+                    changed.add(e.getKey());
+                }
+            }
+            for (Map.Entry<AxisAdapter, int[]> e : bounds.entrySet()) {
+                int[] b = e.getValue();
+                if (e.getKey().applyBounds(b[0], b[1])) {
+                    changed.add(e.getKey());
+                }
+            }
+            if (changed.isEmpty()) return;
+
+            Set<AxisChangedListener> notify = new LinkedHashSet<>();
+            for (AxisAdapter axis : changed) {
+                notify.addAll(axis.listeners);
+            }
+            Set<AxisAdapter> unmodifiable = Collections.unmodifiableSet(changed);
+            for (AxisChangedListener l : notify) {
+                l.onAxisChanged(unmodifiable);
+            }
+        }
+    }
+
+    public static BoundsUpdate beginBoundsUpdate() {
+        return new BoundsUpdate();
+    }
+
+    /**
+     * Tick marks of an axis at its current bounds: the primitive coordinate, plot position and
+     * formatted label of each tick, in ascending coordinate order. Immutable, so it can be
+     * drawn from on every frame without formatting anything.
+     */
+    public static final class Ticks {
+        static final Ticks EMPTY = new Ticks(new double[0], new float[0], new String[0]);
+
+        private final double[] values;
+        private final float[] positions;
+        private final String[] labels;
+
+        Ticks(double[] values, float[] positions, String[] labels) {
+            this.values = values;
+            this.positions = positions;
+            this.labels = labels;
+        }
+
+        public int size() {
+            return values.length;
+        }
+
+        public double getValue(int i) {
+            return values[i];
+        }
+
+        public float getPosition(int i) {
+            return positions[i];
+        }
+
+        public String getLabel(int i) {
+            return labels[i];
+        }
     }
 
     public static class Builder {
@@ -67,6 +183,14 @@ public abstract class AxisAdapter<E extends Value> {
             adapter.setInverted(isRange);
             return adapter;
         }
+
+        public AxisAdapter<DateTimeValue> buildDateTimeValueAxis() {
+            checkLimitsSetOrThrow();
+            if (lower.isNull() || upper.isNull()) return new ExplodingAxisAdapter<DateTimeValue>();
+            AxisAdapter<DateTimeValue> adapter = new DateTimeAxisAdapter(lower, upper);
+            adapter.setInverted(isRange);
+            return adapter;
+        }
     }
 
 
@@ -88,24 +212,204 @@ public abstract class AxisAdapter<E extends Value> {
     }
 
     public void setBounds(int lowerBound, int upperBound) {
-        plotLimitLow = inverted ? upperBound : lowerBound;
-        plotLimitHigh = inverted ? lowerBound : upperBound;
-        boundsSet = true;
-        for (AxisChangedListener l:listeners) {
-            l.onAxisChanged();
+        beginBoundsUpdate().setBounds(this, lowerBound, upperBound).commit();
+    }
+
+    /**
+     * @return true if the bounds changed
+     */
+    private boolean applyBounds(int lowerBound, int upperBound) {
+        int low = inverted ? upperBound : lowerBound;
+        int high = inverted ? lowerBound : upperBound;
+        if (boundsSet && low == plotLimitLow && high == plotLimitHigh) {
+            return false;
         }
+        plotLimitLow = low;
+        plotLimitHigh = high;
+        boundsSet = true;
+        ticks = null;
+        updateScale();
+        return true;
+    }
+
+    /**
+     * Declare the source coordinates, in the primitive units of {@link #getPlotPosition(double)},
+     * that map to the lower and upper plot bounds. Adapters call this once on construction; the
+     * scale factor used to project values is derived from it whenever the bounds change.
+     */
+    protected void setSourceRange(double low, double high) {
+        limitLow = low;
+        limitHigh = high;
+        applyVisibleRange(low, high);
     }
 
-    protected int getScaledValue(double value, double valLow, double valHigh) {
-        if (valLow > valHigh) {
-            String message = String.format("invalid source range [%s, %s]",
-                    valLow, valHigh);
+    /**
+     * @return true if the visible range changed
+     */
+    private boolean applyVisibleRange(double low, double high) {
+        if (low > high) {
+            String message = String.format("invalid source range [%s, %s]", low, high);
             throw new IllegalArgumentException(message);
         }
-        double factor = valLow != valHigh ? (value - valLow) / (valHigh - valLow) : 0.5f;
-        int position = (int) (Math.round(factor * (plotLimitHigh - plotLimitLow)));
-        return plotLimitLow + position;
+        if (low == sourceLow && high == sourceHigh) {
+            return false;
+        }
+        ticks = null;
+        sourceLow = low;
+        sourceHigh = high;
+        updateScale();
+        return true;
+    }
+
+    /**
+     * @return distance in pixels between the lower and upper bound
+     */
+    public int getPlotLength() {
+        return Math.abs(plotLimitHigh - plotLimitLow);
+    }
+
+    /**
+     * @return lowest source coordinate of the data, shown at the lower bound unless zoomed in
+     */
+    public double getLimitLow() {
+        return limitLow;
+    }
+
+    public double getLimitHigh() {
+        return limitHigh;
+    }
+
+    /**
+     * @return source coordinate currently shown at the lower bound
+     */
+    public double getVisibleLow() {
+        return sourceLow;
+    }
+
+    public double getVisibleHigh() {
+        return sourceHigh;
+    }
+
+    /**
+     * @return source coordinate shown at a plot position; the inverse of
+     * {@link #getPlotPosition(double)} up to rounding
+     */
+    public double getPrimitiveForPosition(float position) {
+        if (scale == 0) return sourceLow;
+        return sourceLow + (position - plotLimitLow - bias) / scale;
+    }
+
+    /**
+     * Limit the number of ticks {@link #getTicks()} lays out; fewer are used when the tick
+     * step would otherwise not be a round one.
+     */
+    public void setMaxTickCount(int maxTickCount) {
+        if (maxTickCount < 1) {
+            throw new IllegalArgumentException("need at least one tick, got " + maxTickCount);
+        }
+        if (maxTickCount != this.maxTickCount) {
+            ticks = null;
+        }
+        this.maxTickCount = maxTickCount;
+    }
+
+    /**
+     * @return ticks at round values within the axis limits, laid out and labeled the first time
+     * they are asked for after the bounds or limits change and cached until then.
+     */
+    public Ticks getTicks() {
+        if (!boundsSet) {
+            throw new IllegalStateException("Bounds must be set before calling this method.");
+        }
+        if (ticks == null) {
+            ticks = computeTicks(sourceLow, sourceHigh, maxTickCount);
+        }
+        return ticks;
+    }
+
+    /**
+     * Lay out at most about {@code maxTicks} ticks between two primitive coordinates. The
+     * default places them on multiples of 1, 2 or 5 times a power of ten and labels them as
+     * numbers with as many decimals as the step needs.
+     */
+    protected Ticks computeTicks(double low, double high, int maxTicks) {
+        if (low == high) {
+            return numberTicks(new double[]{low}, 1, 0);
+        }
+        double step = niceStep((high - low) / maxTicks);
+        double first = Math.ceil(low / step);
+        double last = Math.floor(high / step);
+        int count = (int) Math.max(0, last - first + 1);
+        double[] values = new double[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = (first + i) * step;
+        }
+        return numberTicks(values, count, Math.max(0, -(int) Math.floor(Math.log10(step))));
+    }
+
+    private Ticks numberTicks(double[] values, int count, int fractionDigits) {
+        NumberFormat format = NumberFormat.getNumberInstance();
+        format.setMinimumFractionDigits(fractionDigits);
+        format.setMaximumFractionDigits(fractionDigits);
+        String[] labels = new String[count];
+        for (int i = 0; i < count; i++) {
+            labels[i] = format.format(values[i]);
+        }
+        return newTicks(values, labels);
+    }
+
+    /**
+     * @return ticks at the given primitive coordinates, projected to the current bounds
+     */
+    protected Ticks newTicks(double[] values, String[] labels) {
+        float[] positions = new float[labels.length];
+        project(values, 0, labels.length, positions, 0, 1);
+        return new Ticks(Arrays.copyOf(values, labels.length), positions, labels);
+    }
+
+    /**
+     * @return smallest of 1, 2 or 5 times a power of ten that is at least {@code rough}
+     */
+    static double niceStep(double rough) {
+        double magnitude = Math.pow(10, Math.floor(Math.log10(rough)));
+        double fraction = rough / magnitude;
+        if (fraction <= 1) return magnitude;
+        if (fraction <= 2) return 2 * magnitude;
+        if (fraction <= 5) return 5 * magnitude;
+        return 10 * magnitude;
+    }
+
+    /**
+     * @return smallest {@code v >= value} with {@code v - phase} a multiple of {@code step}
+     */
+    static long alignUp(long value, long step, long phase) {
+        long misaligned = (value - phase) - EpochDays.floorDiv(value - phase, step) * step;
+        return misaligned == 0 ? value : value + step - misaligned;
+    }
+
+    /**
+     * @param unitMillis milliseconds per primitive coordinate unit, e.g. a day on date axes
+     * @return ticks labeled as dates of the local times they stand for
+     */
+    Ticks newDateTicks(double[] values, int count, String pattern, long unitMillis) {
+        SimpleDateFormat format = new SimpleDateFormat(pattern, Locale.getDefault());
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        String[] labels = new String[count];
+        for (int i = 0; i < count; i++) {
+            labels[i] = format.format(new Date((long) values[i] * unitMillis));
+        }
+        return newTicks(values, labels);
+    }
 
+    private void updateScale() {
+        int span = plotLimitHigh - plotLimitLow;
+        if (sourceLow != sourceHigh) {
+            scale = span / (sourceHigh - sourceLow);
+            bias = 0;
+        } else {
+            scale = 0;
+            bias = 0.5 * span;
+        }
     }
 
     @SuppressWarnings("unchecked")
@@ -117,8 +421,80 @@ public abstract class AxisAdapter<E extends Value> {
         return getPositionForValue((E)value);
     }
 
+    /**
+     * Plot position for a primitive coordinate, as stored in {@link ColumnarSeriesData}:
+     * epoch days on date axes, plain numbers otherwise.
+     */
+    public float getPlotPosition(double value) {
+        if (!boundsSet) {
+            throw new IllegalStateException("Bounds must be set before calling this method.");
+        }
+
+        return getPositionForPrimitive(value);
+    }
+
+    /**
+     * Project {@code count} primitive coordinates starting at {@code src[from]} into plot
+     * positions, writing them to {@code dst} every {@code dstStride} elements starting at
+     * {@code dstOffset}, so an interleaved x, y buffer can be filled one axis at a time. Null
+     * values must be skipped by the caller; NaN inputs produce unspecified positions.
+     */
+    public void project(double[] src, int from, int count, float[] dst, int dstOffset,
+                        int dstStride) {
+        checkProjection(src.length, from, count, dst.length, dstOffset, dstStride);
+        final double low = sourceLow;
+        final double k = scale;
+        final double b = bias;
+        final int base = plotLimitLow;
+        for (int i = 0, o = dstOffset; i < count; i++, o += dstStride) {
+            dst[o] = base + Math.round((src[from + i] - low) * k + b);
+        }
+    }
+
+    /**
+     * Same as {@link #project(double[], int, int, float[], int, int)} for integral coordinates,
+     * e.g. bucket keys.
+     */
+    public void project(long[] src, int from, int count, float[] dst, int dstOffset,
+                        int dstStride) {
+        checkProjection(src.length, from, count, dst.length, dstOffset, dstStride);
+        final double low = sourceLow;
+        final double k = scale;
+        final double b = bias;
+        final int base = plotLimitLow;
+        for (int i = 0, o = dstOffset; i < count; i++, o += dstStride) {
+            dst[o] = base + Math.round((src[from + i] - low) * k + b);
+        }
+    }
+
+    /**
+     * @return plot positions of the first {@code count} coordinates of {@code src}
+     */
+    public float[] project(double[] src, int count) {
+        float[] dst = new float[count];
+        project(src, 0, count, dst, 0, 1);
+        return dst;
+    }
+
+    private void checkProjection(int srcLength, int from, int count, int dstLength,
+                                 int dstOffset, int dstStride) {
+        if (!boundsSet) {
+            throw new IllegalStateException("Bounds must be set before calling this method.");
+        }
+        if (from < 0 || count < 0 || from + count > srcLength || dstOffset < 0 || dstStride < 1
+                || (count > 0 && dstOffset + (long) (count - 1) * dstStride >= dstLength)) {
+            throw new IndexOutOfBoundsException(String.format(
+                    "can't project %d values from %d of %d into %d of %d by %d",
+                    count, from, srcLength, dstOffset, dstLength, dstStride));
+        }
+    }
+
     protected abstract float getPositionForValue(E value);
 
+    protected float getPositionForPrimitive(double value) {
+        return plotLimitLow + Math.round((value - sourceLow) * scale + bias);
+    }
+
     /**
      * Plotter that returns plot positions based on zero-based 'position' values (a.k.a. discrete
      * domain points). For example to obtain the plot position for the first discrete data point,
@@ -127,67 +503,170 @@ public abstract class AxisAdapter<E extends Value> {
      */
     public static class DiscreteAxisAdapter extends AxisAdapter<NumberValue> {
 
-        private final double srcLow;
-        private final double srcHigh;
-
         public DiscreteAxisAdapter(int discreteCount) {
-            srcLow = 0.5;
-            srcHigh = discreteCount + 0.5;
+            setSourceRange(-0.5, discreteCount - 0.5);
         }
 
         @Override
         protected float getPositionForValue(NumberValue value) {
-            double plotValue = value.getValue() + 1;
-            return (float) this.getScaledValue(plotValue, srcLow, srcHigh);
+            return getPositionForPrimitive(value.getValue());
         }
     }
 
+    /**
+     * Positions dates by whole days; primitive coordinates are epoch days.
+     */
     public static class DateAxisAdapter extends AxisAdapter<DateValue> {
-        private final DateValue baseDate;
-        private final int dateSpan;
+        private static final double AVERAGE_DAYS_PER_MONTH = 365.2425 / 12;
+        private static final int[] MONTH_STEPS = {1, 2, 3, 6};
 
         protected DateAxisAdapter(Value start, Value end) {
+            long baseDay = EpochDays.of((DateValue) start);
+            long dateSpan = EpochDays.of((DateValue) end) - baseDay;
+            if (dateSpan < 0) {
+                throw new IllegalArgumentException("Invalid range " + start + " - " + end);
+            }
+            setSourceRange(baseDay - 0.5, baseDay + dateSpan + 0.5);
+        }
 
-            NumberValue diff = (NumberValue) DateDiff.getInstance().evaluate(
-                    Lists.newArrayList(start, end));
+        @Override
+        protected float getPositionForValue(DateValue value) {
+            return getPositionForPrimitive(EpochDays.of(value));
+        }
+
+        /**
+         * Ticks on every day or every other day, on Mondays for one or two week steps, on the
+         * first of every 1, 2, 3 or 6 months, or on January 1st of round years.
+         */
+        @Override
+        protected Ticks computeTicks(double low, double high, int maxTicks) {
+            long first = (long) Math.ceil(low);
+            long last = (long) Math.floor(high);
+            double days = last - first + 1;
+            if (days <= maxTicks) {
+                return dayTicks(first, last, 1, "MMM d");
+            }
+            if (days / 2 <= maxTicks) {
+                return dayTicks(first, last, 2, "MMM d");
+            }
+            if (days / 7 <= maxTicks) {
+                return bucketTicks(TimeBucketer.Resolution.WEEK, first, last, 1, maxTicks, "MMM d");
+            }
+            if (days / 14 <= maxTicks) {
+                return bucketTicks(TimeBucketer.Resolution.WEEK, first, last, 2, maxTicks, "MMM d");
+            }
+            double months = days / AVERAGE_DAYS_PER_MONTH;
+            for (int step : MONTH_STEPS) {
+                if (months / step <= maxTicks) {
+                    return bucketTicks(TimeBucketer.Resolution.MONTH, first, last, step,
+                            maxTicks, "MMM yyyy");
+                }
+            }
+            int years = (int) niceStep(Math.max(1, months / 12 / maxTicks));
+            return bucketTicks(TimeBucketer.Resolution.MONTH, first, last, 12 * years,
+                    maxTicks, "yyyy");
+        }
+
+        private Ticks dayTicks(long first, long last, int step, String pattern) {
+            long day = alignUp(first, step, 0);
+            int count = (int) Math.max(0, (last - day) / step + 1);
+            double[] values = new double[count];
+            for (int i = 0; i < count; i++) {
+                values[i] = day + (long) i * step;
+            }
+            return newDateTicks(values, count, pattern, EpochDays.MILLIS_PER_DAY);
+        }
+
+        private Ticks bucketTicks(TimeBucketer.Resolution resolution, long first, long last,
+                                  int step, int maxTicks, String pattern) {
+            long bucket = resolution.bucketOf(first * EpochDays.MILLIS_PER_DAY);
+            if (resolution.firstDayOf(bucket) < first) bucket++;
+            bucket = alignUp(bucket, step, 0);
+            double[] values = new double[maxTicks + 2];
+            int count = 0;
+            for (; count < values.length; count++, bucket += step) {
+                long day = resolution.firstDayOf(bucket);
+                if (day > last) break;
+                values[count] = day;
+            }
+            return newDateTicks(values, count, pattern, EpochDays.MILLIS_PER_DAY);
+        }
+    }
+
+    /**
+     * Positions date-times by whole hours; primitive coordinates are hours since the epoch.
+     */
+    public static class DateTimeAxisAdapter extends AxisAdapter<DateTimeValue> {
+        private static final int[] HOUR_STEPS = {1, 2, 3, 6, 12, 24, 48};
 
-            this.dateSpan = (int) diff.getValue();
-            if (this.dateSpan < 0) {
+        protected DateTimeAxisAdapter(Value start, Value end) {
+            long baseHour = HourlySumDomain.hourOf((DateTimeValue) start);
+            long hourSpan = HourlySumDomain.hourOf((DateTimeValue) end) - baseHour;
+            if (hourSpan < 0) {
                 throw new IllegalArgumentException("Invalid range " + start + " - " + end);
             }
-            baseDate = (DateValue)start;
+            setSourceRange(baseHour - 0.5, baseHour + hourSpan + 0.5);
+        }
 
+        @Override
+        protected float getPositionForValue(DateTimeValue value) {
+            return getPositionForPrimitive(HourlySumDomain.hourOf(value));
         }
 
+        /**
+         * Ticks on hours that are multiples of 1, 2, 3, 6 or 12, at midnight every day or
+         * every other day, or at midnight on Mondays every one or more weeks.
+         */
         @Override
-        protected float getPositionForValue(DateValue value) {
-            NumberValue valDiff = (NumberValue) DateDiff.getInstance().evaluate(
-                    Lists.newArrayList((Value)baseDate, value));
-            return (float) getScaledValue(valDiff.getValue(), -0.5, dateSpan + 0.5);
+        protected Ticks computeTicks(double low, double high, int maxTicks) {
+            long first = (long) Math.ceil(low);
+            long last = (long) Math.floor(high);
+            double hours = last - first + 1;
+            int step = 0;
+            for (int candidate : HOUR_STEPS) {
+                if (hours / candidate <= maxTicks) {
+                    step = candidate;
+                    break;
+                }
+            }
+            // weeks start on Monday, three days after the epoch
+            long phase = 0;
+            if (step == 0) {
+                step = 7 * 24 * (int) niceStep(Math.max(1, hours / (7 * 24) / maxTicks));
+                phase = -3 * 24;
+            }
+            long hour = alignUp(first, step, phase);
+            int count = (int) Math.max(0, (last - hour) / step + 1);
+            double[] values = new double[count];
+            for (int i = 0; i < count; i++) {
+                values[i] = hour + (long) i * step;
+            }
+            return newDateTicks(values, count, step < 24 ? "HH:mm" : "MMM d",
+                    TimeBucketer.MILLIS_PER_HOUR);
         }
     }
 
     public static class NumberAxisAdapter extends AxisAdapter<NumberValue> {
-        private final double srcLow;
-        private final double srcHigh;
 
         protected NumberAxisAdapter(Value srcLow, Value srcHigh) {
-            this.srcLow = ((NumberValue) srcLow).getValue();
-            this.srcHigh = ((NumberValue) srcHigh).getValue();
-            if (this.srcLow > this.srcHigh) {
+            double low = ((NumberValue) srcLow).getValue();
+            double high = ((NumberValue) srcHigh).getValue();
+            if (low > high) {
                 throw new IllegalArgumentException(String.format("Invalid Source Range: %s-%s",
                         srcLow, srcHigh));
             }
+            setSourceRange(low, high);
         }
 
         @Override
         protected float getPositionForValue(NumberValue value) {
-            return (float) getScaledValue(value.getValue(), srcLow, srcHigh);
+            return getPositionForPrimitive(value.getValue());
         }
     }
 
     /**
      * Lazy-error scale object that will blow up if caller attempts to scale any objects with it.
+     * Projecting nothing is allowed, so empty and all-null series can still be laid out.
      */
     public static class ExplodingAxisAdapter<T extends Value> extends AxisAdapter {
 
@@ -196,5 +675,32 @@ public abstract class AxisAdapter<E extends Value> {
             throw new UnsupportedOperationException("This object was not expected to be " +
                     "used due to lack of min or max values during instantiation");
         }
+
+        @Override
+        protected float getPositionForPrimitive(double value) {
+            throw new UnsupportedOperationException("This object was not expected to be " +
+                    "used due to lack of min or max values during instantiation");
+        }
+
+        @Override
+        protected Ticks computeTicks(double low, double high, int maxTicks) {
+            return Ticks.EMPTY;
+        }
+
+        @Override
+        public void project(double[] src, int from, int count, float[] dst, int dstOffset,
+                            int dstStride) {
+            if (count == 0) return;
+            throw new UnsupportedOperationException("This object was not expected to be " +
+                    "used due to lack of min or max values during instantiation");
+        }
+
+        @Override
+        public void project(long[] src, int from, int count, float[] dst, int dstOffset,
+                            int dstStride) {
+            if (count == 0) return;
+            throw new UnsupportedOperationException("This object was not expected to be " +
+                    "used due to lack of min or max values during instantiation");
+        }
     }
 }
@@ -0,0 +1,103 @@
+package com.waterbear.loglibrary.plot;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.visualization.datasource.datatable.value.DateValue;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * Loads daily sums for many buttons over the same window, e.g. a dashboard of sparklines, in
+ * one loader pass instead of one domain load per button. The buttons' logs are read one
+ * button after another, since every {@link LogSource} keeps them per button, and folded into
+ * per-button day sums through one {@link TimeBucketer}; the pass is a single task, so
+ * cancelling it stops the loading of every button at once. The resulting domains are loaded
+ * and can be refreshed incrementally on their own.
+ */
+public class BatchDomainLoader {
+
+    private static final int CANCEL_CHECK_MASK = 0xfff;
+
+    private final LogSource source;
+
+    public BatchDomainLoader(LogSource source) {
+        this.source = source;
+    }
+
+    /**
+     * @return one loaded domain per distinct button id, in the order given
+     * @throws java.util.concurrent.CancellationException if the loading thread was interrupted
+     */
+    public Map<Integer, DailySumDomain> loadDailySums(int[] buttonIds, DateValue low,
+                                                      DateValue high) {
+        long after = low.getObjectToFormat().getTimeInMillis();
+        Map<Integer, GroupByAggregator> days = new LinkedHashMap<>();
+        for (int id : buttonIds) {
+            if (!days.containsKey(id)) days.put(id, new GroupByAggregator(1));
+        }
+
+        Map<Integer, long[]> newest = new LinkedHashMap<>();
+        TimeBucketer bucketer = new TimeBucketer(TimeBucketer.Resolution.DAY);
+        int read = 0;
+        for (Map.Entry<Integer, GroupByAggregator> e : days.entrySet()) {
+            GroupByAggregator sums = e.getValue();
+            long latest = Long.MIN_VALUE;
+            int atLatest = 0;
+            LogSource.LogCursor c = source.query(e.getKey(), after, LogSource.UNBOUNDED);
+            try {
+                while (c.moveToNext()) {
+                    if ((++read & CANCEL_CHECK_MASK) == 0) Domain.checkCancelled();
+                    long millis = c.getMillis();
+                    int day = sums.addRow(bucketer.bucketOf(millis, c.getTimezoneOffset()));
+                    if (!c.isQuantityNull()) {
+                        sums.add(day, 0, c.getQuantity());
+                    }
+                    if (millis > latest) {
+                        latest = millis;
+                        atLatest = 1;
+                    } else if (millis == latest) {
+                        atLatest++;
+                    }
+                }
+            } finally {
+                c.close();
+            }
+            newest.put(e.getKey(), new long[]{latest, atLatest});
+        }
+
+        Map<Integer, DailySumDomain> domains = new LinkedHashMap<>();
+        for (Map.Entry<Integer, GroupByAggregator> e : days.entrySet()) {
+            DailySumDomain domain = new DailySumDomain(low, high, source, e.getKey());
+            long[] latest = newest.get(e.getKey());
+            domains.put(e.getKey(), domain.loadFrom(e.getValue(), latest[0], (int) latest[1]));
+        }
+        return domains;
+    }
+
+    /**
+     * Load daily sums for many buttons on a background executor, as one task.
+     *
+     * @return future of the loaded domains; cancelling it with interruption stops the whole
+     * batch
+     */
+    public ListenableFuture<Map<Integer, DailySumDomain>> loadDailySumsAsync(
+            ListeningExecutorService executor, final int[] buttonIds, final DateValue low,
+            final DateValue high) {
+        return executor.submit(new Callable<Map<Integer, DailySumDomain>>() {
+            @Override
+            public Map<Integer, DailySumDomain> call() {
+                return loadDailySums(buttonIds, low, high);
+            }
+        });
+    }
+
+    /**
+     * Load daily sums for many buttons on the shared domain loader.
+     */
+    public ListenableFuture<Map<Integer, DailySumDomain>> loadDailySumsAsync(
+            int[] buttonIds, DateValue low, DateValue high) {
+        return loadDailySumsAsync(Domain.getLoaderExecutor(), buttonIds, low, high);
+    }
+}
@@ -4,19 +4,41 @@ import android.content.Context;
 import android.content.res.TypedArray;
 import android.graphics.Canvas;
 import android.util.AttributeSet;
+import android.view.GestureDetector;
+import android.view.MotionEvent;
+import android.view.ScaleGestureDetector;
+import android.view.ViewParent;
 import android.widget.ImageView;
 
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.google.visualization.datasource.datatable.value.DateTimeValue;
 import com.google.visualization.datasource.datatable.value.DateValue;
 import com.google.visualization.datasource.datatable.value.NumberValue;
 import com.waterbear.loglibrary.R;
 
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
 
 public class ChartView extends ImageView {
 
     private final List<BoundsChangedListener> boundsChangedListeners = Lists.newArrayList();
     private Renderer mRenderer;
+    private Plotter mPlotter;
+    private final ScaleGestureDetector mScaleDetector;
+    private final GestureDetector mGestureDetector;
+    private boolean mInteractive = false;
+    private ListenableFuture<? extends Domain> mPendingTable;
+    private boolean mAttached = false;
+    private final Executor mUiExecutor = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            post(command);
+        }
+    };
 
     public ChartView(Context context, AttributeSet attrs) {
         this(context, attrs, 0);
@@ -27,17 +49,164 @@ public class ChartView extends ImageView {
         TypedArray attributes = context.obtainStyledAttributes(attrs, R.styleable.ChartView);
         DisplayOptions options = new DisplayOptions.Builder().setAttributes(attributes).build();
         mRenderer = new Renderer(options);
+        mScaleDetector = new ScaleGestureDetector(context, new ZoomListener());
+        mGestureDetector = new GestureDetector(context, new PanListener());
+
+    }
+
+    /**
+     * Let the user pinch to zoom, drag to pan and double tap to reset the viewport. Off by
+     * default, so a chart leaves touches to its parent, e.g. a clickable list row.
+     */
+    public void setInteractive(boolean interactive) {
+        mInteractive = interactive;
+    }
+
+    public boolean isInteractive() {
+        return mInteractive;
+    }
+
+    /**
+     * Keep the parent from taking over a gesture once it has started, e.g. a list scrolling
+     * while the chart pans.
+     */
+    private void claimGesture() {
+        ViewParent parent = getParent();
+        if (parent != null) parent.requestDisallowInterceptTouchEvent(true);
+    }
+
+    /**
+     * Pinch to zoom the domain around the fingers.
+     */
+    private class ZoomListener extends ScaleGestureDetector.SimpleOnScaleGestureListener {
+        @Override
+        public boolean onScaleBegin(ScaleGestureDetector detector) {
+            if (mPlotter == null) return false;
+            claimGesture();
+            return true;
+        }
+
+        @Override
+        public boolean onScale(ScaleGestureDetector detector) {
+            if (mPlotter == null) return false;
+            mPlotter.zoom(detector.getScaleFactor(), detector.getFocusX() - getPaddingLeft());
+            invalidate();
+            return true;
+        }
+    }
 
+    /**
+     * Drag to pan along the domain, double tap to show all of it again.
+     */
+    private class PanListener extends GestureDetector.SimpleOnGestureListener {
+        @Override
+        public boolean onDown(MotionEvent e) {
+            return mInteractive && mPlotter != null;
+        }
+
+        @Override
+        public boolean onScroll(MotionEvent e1, MotionEvent e2, float distanceX, float distanceY) {
+            if (mPlotter == null) return false;
+            claimGesture();
+            mPlotter.pan(distanceX);
+            invalidate();
+            return true;
+        }
+
+        @Override
+        public boolean onDoubleTap(MotionEvent e) {
+            if (mPlotter == null) return false;
+            mPlotter.resetViewport();
+            invalidate();
+            return true;
+        }
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if (!mInteractive) return super.onTouchEvent(event);
+        boolean handled = mScaleDetector.onTouchEvent(event);
+        if (!mScaleDetector.isInProgress()) {
+            handled = mGestureDetector.onTouchEvent(event) || handled;
+        }
+        return handled || super.onTouchEvent(event);
     }
 
     public void setTable(Domain data) {
+        cancelPendingTable();
         boundsChangedListeners.clear();
-        Plotter.DayPlotter plotter = getDayPlotter(data);
+        Plotter plotter = data.getLowerLimit() instanceof DateTimeValue
+                ? getHourPlotter(data) : getDayPlotter(data);
         mRenderer.setPlotter(plotter);
+        mPlotter = plotter;
         boundsChangedListeners.add(plotter);
         invalidate();
     }
 
+    /**
+     * Show a domain that is still loading, e.g. from {@link Domain#loadAsync()}. A placeholder
+     * is drawn until the domain is ready. A load that is still pending when another table is
+     * set is cancelled and its result ignored, so rebinding a view while scrolling a list
+     * never shows stale data. Detaching the view keeps the load running; a result that
+     * arrives while detached is shown once the view is attached again.
+     */
+    public void setTable(final ListenableFuture<? extends Domain> pending) {
+        cancelPendingTable();
+        boundsChangedListeners.clear();
+        mRenderer.clearPlotter();
+        mPlotter = null;
+        mPendingTable = pending;
+        invalidate();
+
+        pending.addListener(new Runnable() {
+            @Override
+            public void run() {
+                showPendingTable(pending);
+            }
+        }, mUiExecutor);
+    }
+
+    /**
+     * Show a pending table that finished loading, unless another table was set since or the
+     * view is detached, in which case {@link #onAttachedToWindow()} shows it later.
+     */
+    private void showPendingTable(ListenableFuture<? extends Domain> pending) {
+        if (mPendingTable != pending || !mAttached) return;
+        mPendingTable = null;
+        Domain result;
+        try {
+            result = Futures.getUnchecked(pending);
+        } catch (UncheckedExecutionException | CancellationException e) {
+            invalidate();
+            return;
+        }
+        setTable(result);
+    }
+
+    private void cancelPendingTable() {
+        if (mPendingTable != null) {
+            ListenableFuture<? extends Domain> pending = mPendingTable;
+            mPendingTable = null;
+            pending.cancel(true);
+        }
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        mAttached = true;
+        if (mPendingTable != null && mPendingTable.isDone()) {
+            showPendingTable(mPendingTable);
+        }
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        mAttached = false;
+        mRenderer.releaseCache();
+    }
+
     private Plotter.DayPlotter getDayPlotter(Domain data) {
         int vh = getHeight() - getPaddingTop() - getPaddingBottom();
         int vw = getWidth() - getPaddingLeft() - getPaddingRight();
@@ -54,6 +223,22 @@ public class ChartView extends ImageView {
         return new Plotter.DayPlotter(domainAxis, rangeAxis, data);
     }
 
+    private Plotter.HourPlotter getHourPlotter(Domain data) {
+        int vh = getHeight() - getPaddingTop() - getPaddingBottom();
+        int vw = getWidth() - getPaddingLeft() - getPaddingRight();
+
+        AxisAdapter<NumberValue> rangeAxis = new AxisAdapter.Builder()
+                .setRangeLimits(data)
+                .buildNumberValueAxis();
+        AxisAdapter<DateTimeValue> domainAxis = new AxisAdapter.Builder()
+                .setDomainLimits(data)
+                .buildDateTimeValueAxis();
+        rangeAxis.setBounds(0, vh);
+        domainAxis.setBounds(0, vw);
+
+        return new Plotter.HourPlotter(domainAxis, rangeAxis, data);
+    }
+
     protected void onSizeChanged(int w, int h, int oldw, int oldh) {
         super.onSizeChanged(w, h, oldw, oldh);
         int vh = getHeight() - getPaddingTop() - getPaddingBottom();
@@ -66,11 +251,22 @@ public class ChartView extends ImageView {
 
     }
 
+    /**
+     * Blits the chart from the renderer's cached bitmap, which is only redrawn after a new
+     * table, a size, bounds or viewport change, not when the parent merely scrolls or
+     * animates this view.
+     */
     @Override
     protected void onDraw(Canvas canvas) {
         super.onDraw(canvas);
         canvas.translate(getPaddingLeft(), getPaddingTop());
-        mRenderer.renderOntoCanvas(canvas);
+        int vh = getHeight() - getPaddingTop() - getPaddingBottom();
+        int vw = getWidth() - getPaddingLeft() - getPaddingRight();
+        if (mPendingTable != null) {
+            mRenderer.renderPlaceholder(canvas, vw, vh);
+            return;
+        }
+        mRenderer.renderCached(canvas, vw, vh);
     }
 
     public interface BoundsChangedListener {
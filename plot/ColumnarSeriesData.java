@@ -0,0 +1,180 @@
+package com.waterbear.loglibrary.plot;
+
+import java.util.Arrays;
+
+/**
+ * Represents all the series from a domain as primitive columns: one argument column shared by
+ * every series and one value column per series, with a bitmap marking null values. Date
+ * arguments are stored as epoch days, number arguments as they are.
+ * <p/>
+ * Column arrays are handed out without copying and may be longer than {@link #size()}.
+ */
+public class ColumnarSeriesData {
+
+    private final int size;
+    private final double[] arguments;
+    private final double[][] values;
+    private final long[][] nulls;
+
+    private ColumnarSeriesData(int size, double[] arguments, double[][] values, long[][] nulls) {
+        this.size = size;
+        this.arguments = arguments;
+        this.values = values;
+        this.nulls = nulls;
+    }
+
+    public static class Builder {
+        private final int seriesCount;
+        private int size = 0;
+        private double[] arguments;
+        private double[][] values;
+        private long[][] nulls;
+
+        public Builder(int seriesCount) {
+            this(seriesCount, 16);
+        }
+
+        public Builder(int seriesCount, int capacity) {
+            this.seriesCount = seriesCount;
+            int length = Math.max(1, capacity);
+            arguments = new double[length];
+            values = new double[seriesCount][length];
+            nulls = new long[seriesCount][words(length)];
+        }
+
+        /**
+         * Append an argument. Every series starts out null for the new row.
+         *
+         * @return index of the new row
+         */
+        public int addRow(double argument) {
+            checkNotBuilt();
+            if (size == arguments.length) {
+                grow();
+            }
+            int row = size++;
+            arguments[row] = argument;
+            for (long[] bits : nulls) {
+                bits[row >> 6] |= 1L << row;
+            }
+            return row;
+        }
+
+        public Builder setValue(int row, int series, double value) {
+            values[series][row] = value;
+            nulls[series][row >> 6] &= ~(1L << row);
+            return this;
+        }
+
+        /**
+         * Hand the columns over to the series without copying them. The builder can not be
+         * used afterwards, so nothing it does can change the series.
+         */
+        public ColumnarSeriesData build() {
+            checkNotBuilt();
+            ColumnarSeriesData series = new ColumnarSeriesData(size, arguments, values, nulls);
+            arguments = null;
+            values = null;
+            nulls = null;
+            return series;
+        }
+
+        private void checkNotBuilt() {
+            if (arguments == null) throw new IllegalStateException("series built already");
+        }
+
+        private void grow() {
+            int length = arguments.length * 2;
+            arguments = Arrays.copyOf(arguments, length);
+            for (int s = 0; s < seriesCount; s++) {
+                values[s] = Arrays.copyOf(values[s], length);
+                nulls[s] = Arrays.copyOf(nulls[s], words(length));
+            }
+        }
+    }
+
+    private static int words(int length) {
+        return (length + 63) >> 6;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getSeriesCount() {
+        return values.length;
+    }
+
+    public double getArgument(int row) {
+        return arguments[row];
+    }
+
+    public double getValue(int series, int row) {
+        return values[series][row];
+    }
+
+    public boolean isNull(int series, int row) {
+        return (nulls[series][row >> 6] & (1L << row)) != 0;
+    }
+
+    /**
+     * @return true if a series has a value in any of the rows {@code from <= row < to}
+     */
+    public boolean hasValues(int series, int from, int to) {
+        for (int row = from; row < to; row++) {
+            if (!isNull(series, row)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return backing argument column; only the first {@link #size()} entries are valid.
+     */
+    public double[] getArgumentColumn() {
+        return arguments;
+    }
+
+    /**
+     * @return backing value column for a series; only the first {@link #size()} entries are
+     * valid and entries flagged by {@link #isNull(int, int)} are meaningless.
+     */
+    public double[] getValueColumn(int series) {
+        return values[series];
+    }
+
+    /**
+     * @return index of the first row whose argument is not less than {@code argument}, or
+     * {@link #size()} if there is none. Arguments are ascending, as every domain produces them.
+     */
+    public int lowerBound(double argument) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (arguments[mid] < argument) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * @return index of the first row whose argument is greater than {@code argument}, or
+     * {@link #size()} if there is none.
+     */
+    public int upperBound(double argument) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (arguments[mid] <= argument) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
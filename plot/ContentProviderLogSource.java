@@ -0,0 +1,98 @@
+package com.waterbear.loglibrary.plot;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+
+import com.waterbear.loglibrary.content.LogColumns;
+import com.waterbear.loglibrary.provider.TagInfoContract;
+
+/**
+ * Reads logs through the app's content provider.
+ */
+public class ContentProviderLogSource implements LogSource {
+
+    private final Context context;
+
+    public ContentProviderLogSource(Context context) {
+        this.context = context;
+    }
+
+    /**
+     * Sources reading through the same application's provider are equal, so domains made
+     * from different activities still share a {@link DomainCache} entry.
+     */
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof ContentProviderLogSource && context.getApplicationContext()
+                .equals(((ContentProviderLogSource) o).context.getApplicationContext());
+    }
+
+    @Override
+    public int hashCode() {
+        return context.getApplicationContext().hashCode();
+    }
+
+    @Override
+    public LogCursor query(int buttonId, long afterMillis, long untilMillis) {
+        String sel = LogColumns.MILLISECONDS + " > ?";
+        String[] selectionArgs;
+        if (untilMillis == UNBOUNDED) {
+            selectionArgs = new String[]{Long.toString(afterMillis)};
+        } else {
+            sel += " AND " + LogColumns.MILLISECONDS + " <= ?";
+            selectionArgs = new String[]{Long.toString(afterMillis), Long.toString(untilMillis)};
+        }
+        String sort = LogColumns.MILLISECONDS + " ASC";
+        String[] projection = TagInfoContract.LogInfo.getLogChartProjection();
+
+        Uri logUri = TagInfoContract.LogInfo.buildLogDirectoryUri(buttonId, true);
+        Cursor c = context.getContentResolver()
+                .query(logUri, projection, sel, selectionArgs, sort);
+        return new ProviderCursor(c);
+    }
+
+    private static class ProviderCursor implements LogCursor {
+        private final Cursor c;
+        private final int qIdx;
+        private final int tIdx;
+        private final int oIdx;
+
+        ProviderCursor(Cursor c) {
+            this.c = c;
+            qIdx = c.getColumnIndexOrThrow(LogColumns.NUMBER);
+            tIdx = c.getColumnIndexOrThrow(LogColumns.MILLISECONDS);
+            oIdx = c.getColumnIndexOrThrow(LogColumns.TIMEZONE_OFFSET);
+        }
+
+        @Override
+        public boolean moveToNext() {
+            return c.moveToNext();
+        }
+
+        @Override
+        public long getMillis() {
+            return c.getLong(tIdx);
+        }
+
+        @Override
+        public long getTimezoneOffset() {
+            return c.getLong(oIdx);
+        }
+
+        @Override
+        public boolean isQuantityNull() {
+            return c.isNull(qIdx);
+        }
+
+        @Override
+        public double getQuantity() {
+            return c.getDouble(qIdx);
+        }
+
+        @Override
+        public void close() {
+            c.close();
+        }
+    }
+}
@@ -1,55 +1,79 @@
 package com.waterbear.loglibrary.plot;
 
-import com.google.visualization.datasource.datatable.value.Value;
-
-import java.util.ArrayList;
-import java.util.List;
-
 /**
  * translate value data into coordinate data
+ * <p/>
+ * Coordinates are kept interleaved in one flat buffer, x0, y0, x1, y1, ..., which may be
+ * longer than {@code 2 * }{@link #size()} and is handed out without copying.
  */
 class CoordinateSeries {
 
-    private final float[][] coordinates;
+    private final float[] coordinates;
+    private final int size;
 
-    private CoordinateSeries(List<float[]> coordinates) {
-        this.coordinates = coordinates.toArray(new float[coordinates.size()][2]);
+    private CoordinateSeries(float[] coordinates, int size) {
+        this.coordinates = coordinates;
+        this.size = size;
     }
 
-    public static CoordinateSeries[] fromTableSeriesData(
-            TableSeriesData data,
-            AxisAdapter domain,
-            AxisAdapter range) {
-
+    /**
+     * @return series of the first {@code size} points of an interleaved x, y buffer, not copied
+     */
+    static CoordinateSeries wrap(float[] coordinates, int size) {
+        return new CoordinateSeries(coordinates, size);
+    }
 
-        final int seriesCount = data.getSeriesCount();
-        List<CoordinateSeries> seriesList = new ArrayList<>(seriesCount);
-        Value[] arguments = data.getArguments();
-        Value[][] values = data.getValues();
+    /**
+     * Pair already projected argument and value positions of the rows {@code from <= row < to}
+     * of one series, skipping null values.
+     *
+     * @param xVals  plot position of every argument in the rows, starting with row {@code from}
+     * @param yVals  plot position of every value of the series in the rows
+     * @param buffer buffer to refill and publish, or null to allocate a fresh coordinate array
+     */
+    public static CoordinateSeries fromPositions(
+            ColumnarSeriesData data,
+            int series,
+            int from,
+            int to,
+            float[] xVals,
+            float[] yVals,
+            SwapBuffer buffer) {
 
-        float[] xVals = new float[arguments.length];
-        for (int i = 0; i < arguments.length; i++) {
-            xVals[i] = domain.getPlotPosition(arguments[i]);
+        int length = 2 * (to - from);
+        float[] coordinates = buffer != null ? buffer.acquire(length) : new float[length];
+        int k = 0;
+        for (int j = from; j < to; j++) {
+            if (!data.isNull(series, j)) {
+                coordinates[k++] = xVals[j - from];
+                coordinates[k++] = yVals[j - from];
+            }
         }
+        if (buffer != null) buffer.publish(k);
 
-        for (int i = 0; i < seriesCount; i++) {
-            List<float[]> coordinates = new ArrayList<>();
-            for (int j = 0; j < values.length; j++) {
-                Value v = values[j][i];
-                if (!v.isNull()) {
-                    float y = range.getPlotPosition(v);
-                    coordinates.add(new float[]{xVals[j], y});
-                }
-            }
+        return new CoordinateSeries(coordinates, k / 2);
 
-            seriesList.add(new CoordinateSeries(coordinates));
-        }
+    }
 
-        return seriesList.toArray(new CoordinateSeries[seriesList.size()]);
+    /**
+     * @return number of points
+     */
+    public int size() {
+        return size;
+    }
+
+    public float getX(int i) {
+        return coordinates[2 * i];
+    }
 
+    public float getY(int i) {
+        return coordinates[2 * i + 1];
     }
 
-    public float[][] getCoordinates() {
+    /**
+     * @return interleaved x, y buffer; only the first {@code 2 * size()} entries are valid.
+     */
+    public float[] getCoordinates() {
         return coordinates;
     }
 
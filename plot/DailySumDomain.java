@@ -1,8 +1,6 @@
 package com.waterbear.loglibrary.plot;
 
 import android.content.Context;
-import android.database.Cursor;
-import android.net.Uri;
 
 import com.google.visualization.datasource.base.InvalidQueryException;
 import com.google.visualization.datasource.base.TypeMismatchException;
@@ -20,15 +18,10 @@ import com.google.visualization.datasource.query.QueryGroup;
 import com.google.visualization.datasource.query.QuerySelection;
 import com.google.visualization.datasource.query.SimpleColumn;
 import com.google.visualization.datasource.query.engine.QueryEngine;
-import com.waterbear.loglibrary.content.LogColumns;
-import com.waterbear.loglibrary.provider.TagInfoContract;
 
-import java.util.GregorianCalendar;
-import java.util.LinkedHashMap;
+import java.io.IOException;
 import java.util.List;
 import java.util.Locale;
-import java.util.Map;
-import java.util.TimeZone;
 
 /**
  * Domain object that represents daily sums.
@@ -37,62 +30,226 @@ import java.util.TimeZone;
  */
 public class DailySumDomain extends Domain<DateValue, NumberValue> {
     private static final int SUM_COLUMN = 1;
-    private final Context context;
+    private static final int CANCEL_CHECK_MASK = 0xfff;
+    private final LogSource source;
     private final int buttonId;
+    private boolean streaming = true;
+    private GroupByAggregator days;
+    private long loadedFromMillis;
+    /**
+     * Logs at {@link #getWatermark()} that were folded already. Refreshes read that
+     * millisecond again, since more logs may have been written with the same time since.
+     */
+    private int foldedAtWatermark;
+    private RollupStore rollups;
+    private final TimeBucketer bucketer = new TimeBucketer(TimeBucketer.Resolution.DAY);
 
     public DailySumDomain(DateValue low, DateValue high, Context context, int buttonId) {
+        this(low, high, new ContentProviderLogSource(context), buttonId);
+    }
+
+    public DailySumDomain(DateValue low, DateValue high, LogSource source, int buttonId) {
         super(low, high);
-        this.context = context;
+        this.source = source;
         this.buttonId = buttonId;
     }
 
+    /**
+     * Choose between folding cursor rows straight into per-day sums (the default) and
+     * copying every row into a {@link DataTable} that is grouped by the query engine. The
+     * table path is also taken whenever {@link #setUseQueryEngine(boolean)} is on.
+     *
+     * @param streaming true to aggregate while reading the cursor
+     * @return this domain
+     */
+    public DailySumDomain setStreaming(boolean streaming) {
+        this.streaming = streaming;
+        return this;
+    }
+
+    /**
+     * Read whole-day sums from a rollup store instead of scanning raw logs. Days are taken
+     * from the one holding the lower limit through the one holding the upper limit, in the
+     * timezone each log was made in. Rollups keep no log times, so such a domain has no
+     * {@link #getWatermark() watermark} and every refresh reloads it in full.
+     *
+     * @param rollups store kept current for this domain's button, or null to read raw logs
+     * @return this domain
+     */
+    public DailySumDomain setRollupStore(RollupStore rollups) {
+        this.rollups = rollups;
+        return this;
+    }
+
+    @Override
+    protected List<Object> getLoadSpec() {
+        List<Object> spec = super.getLoadSpec();
+        spec.add(source);
+        spec.add(rollups);
+        spec.add(streaming);
+        return spec;
+    }
+
     @Override
     protected NumberValue[] getRange(DataTable table) {
+        if (days != null) {
+            return toNumberValues(days.getMinMax(0, GroupByAggregator.Aggregation.SUM));
+        }
         return getMinMaxValues(table, SUM_COLUMN);
     }
 
     @Override
-    public TableSeriesData getSeries() {
-        Map<Value, Value[]> series = new LinkedHashMap<>();
+    protected ColumnarSeriesData createSeries() {
+        if (days != null) {
+            long[] sortedDays = days.sortedKeys();
+            ColumnarSeriesData.Builder series = new ColumnarSeriesData.Builder(1, sortedDays.length);
+            for (long day : sortedDays) {
+                int g = days.find(day);
+                int row = series.addRow(day);
+                if (!days.isNull(g, 0)) {
+                    series.setValue(row, 0, days.get(g, 0, GroupByAggregator.Aggregation.SUM));
+                }
+            }
+            return series.build();
+        }
+
         int dIdx = data.getColumnIndex("date");
         int nIdx = data.getColumnIndex("sum-quantity");
         List<TableRow> rows = data.getRows();
+        ColumnarSeriesData.Builder series = new ColumnarSeriesData.Builder(1, rows.size());
         for (TableRow row : rows) {
             final DateValue date = (DateValue) row.getCell(dIdx).getValue();
-            final NumberValue[] sum = {(NumberValue) row.getCell(nIdx).getValue()};
-            series.put(date, sum);
+            final Value sum = row.getCell(nIdx).getValue();
+            int idx = series.addRow(EpochDays.of(date));
+            if (!sum.isNull()) {
+                series.setValue(idx, 0, ((NumberValue) sum).getValue());
+            }
         }
 
-        return new TableSeriesData(series);
+        return series.build();
 
     }
 
     protected DataTable loadData() throws TypeMismatchException, InvalidQueryException {
-        long sevenDaysAgo = low.getObjectToFormat().getTimeInMillis();
+        long lowMillis = low.getObjectToFormat().getTimeInMillis();
+        if (rollups != null && streaming && !isUsingQueryEngine()) {
+            GroupByAggregator sums = new GroupByAggregator(1);
+            try {
+                rollups.read(buttonId, TimeBucketer.Resolution.DAY, EpochDays.of(low),
+                        EpochDays.of(high), sums);
+            } catch (IOException e) {
+                throw new IllegalStateException(e.getLocalizedMessage());
+            }
+            days = sums;
+            return toTable(days);
+        }
+
+        LogSource.LogCursor c = source.query(buttonId, lowMillis, LogSource.UNBOUNDED);
+        if (streaming && !isUsingQueryEngine()) {
+            GroupByAggregator sums = new GroupByAggregator(1);
+            foldedAtWatermark = 0;
+            foldRows(c, sums);
+            days = sums;
+            loadedFromMillis = lowMillis;
+            return toTable(days);
+        }
+
+        DataTable table = loadDataWithQueryEngine(c);
+        days = null;
+        return table;
+    }
 
-        String sel = LogColumns.MILLISECONDS + " > ?";
-        String[] selectionArgs = new String[]{Long.toString(sevenDaysAgo)};
-        String sort = LogColumns.MILLISECONDS + " ASC";
-        String[] projection = TagInfoContract.LogInfo.getLogChartProjection();
+    /**
+     * Finish loading with day sums that were accumulated by a batch read, so the domain can
+     * be refreshed incrementally from here on like one that loaded itself.
+     */
+    DailySumDomain loadFrom(GroupByAggregator days, long newestMillis, int atNewest) {
+        if (rollups != null || !streaming || isUsingQueryEngine()) {
+            throw new IllegalStateException("batch loading only fills streaming domains");
+        }
+        this.days = days;
+        loadedFromMillis = low.getObjectToFormat().getTimeInMillis();
+        try {
+            load(toTable(days));
+        } catch (TypeMismatchException e) {
+            throw new IllegalStateException(e.getLocalizedMessage());
+        }
+        advanceWatermark(newestMillis);
+        foldedAtWatermark = atNewest;
+        return this;
+    }
 
-        Uri logUri = TagInfoContract.LogInfo.buildLogDirectoryUri(buttonId, true);
-        Cursor c = context.getContentResolver()
-                .query(logUri, projection, sel, selectionArgs, sort);
+    /**
+     * Fold only logs at or after the watermark that were not folded yet into the existing day
+     * sums, and drop the days that fell out of the window. Logs inserted with older times,
+     * edited or deleted are not seen this way; call {@link #onLogsChanged()} when the log
+     * provider reports a change so the next refresh reloads in full. The day holding the new
+     * lower limit is kept whole, so near that edge the result may also differ from a full
+     * reload by logs whose timezone offset moves them across midnight. Falls back to a full
+     * reload when there is nothing to build on, the window moved backwards, or the sums come
+     * from rollups, which are already one row per day.
+     */
+    @Override
+    protected DataTable refreshData() throws TypeMismatchException, InvalidQueryException {
+        long lowMillis = low.getObjectToFormat().getTimeInMillis();
+        if (days == null || rollups != null || isUsingQueryEngine()
+                || lowMillis < loadedFromMillis) {
+            return super.refreshData();
+        }
 
+        days.removeKeysBefore(TimeBucketer.Resolution.DAY.bucketOf(lowMillis));
+        loadedFromMillis = lowMillis;
+        long watermark = getWatermark();
+        long after = watermark == Long.MIN_VALUE ? lowMillis : Math.max(lowMillis, watermark - 1);
+        foldRows(source.query(buttonId, after, LogSource.UNBOUNDED), days);
+        return toTable(days);
+    }
+
+    /**
+     * Fold a cursor's rows into day sums, skipping the ones at the watermark that were folded
+     * already. The watermark only moves once every row was folded.
+     */
+    private void foldRows(LogSource.LogCursor c, GroupByAggregator into) {
+        try {
+            long watermark = getWatermark();
+            int skip = foldedAtWatermark;
+            long newest = watermark;
+            int atNewest = foldedAtWatermark;
+            int read = 0;
+            while (c.moveToNext()) {
+                if ((++read & CANCEL_CHECK_MASK) == 0) checkCancelled();
+                long millis = c.getMillis();
+                if (millis == watermark && skip > 0) {
+                    skip--;
+                    continue;
+                }
+                int day = into.addRow(bucketer.bucketOf(millis, c.getTimezoneOffset()));
+                if (!c.isQuantityNull()) {
+                    into.add(day, 0, c.getQuantity());
+                }
+                if (millis > newest) {
+                    newest = millis;
+                    atNewest = 1;
+                } else if (millis == newest) {
+                    atNewest++;
+                }
+            }
+            advanceWatermark(newest);
+            foldedAtWatermark = atNewest;
+        } finally {
+            c.close();
+        }
+    }
+
+    private DataTable loadDataWithQueryEngine(LogSource.LogCursor c)
+            throws TypeMismatchException, InvalidQueryException {
         DataTable table = new DataTable();
         table.addColumn(new ColumnDescription("quantity", ValueType.NUMBER, "Quantity"));
         table.addColumn(new ColumnDescription("date", ValueType.DATE, "Date"));
-        GregorianCalendar calendar = new GregorianCalendar();
-        calendar.setTimeZone(TimeZone.getTimeZone("GMT"));
 
-        int qIdx = c.getColumnIndexOrThrow(LogColumns.NUMBER);
-        int tIdx = c.getColumnIndexOrThrow(LogColumns.MILLISECONDS);
-        int oIdx = c.getColumnIndexOrThrow(LogColumns.TIMEZONE_OFFSET);
         while (c.moveToNext()) {
-            Value quan = c.isNull(qIdx) ? NumberValue.getNullValue() : new NumberValue(c.getDouble(qIdx));
-            long gmtTime = c.getLong(tIdx) + c.getLong(oIdx);
-            calendar.setTimeInMillis(gmtTime);
-            Value date = new DateValue(calendar);
+            Value quan = c.isQuantityNull() ? NumberValue.getNullValue() : new NumberValue(c.getQuantity());
+            Value date = EpochDays.toDateValue(bucketer.bucketOf(c.getMillis(), c.getTimezoneOffset()));
             TableRow row = new TableRow();
             row.addCell(quan);
             row.addCell(date);
@@ -114,4 +271,23 @@ public class DailySumDomain extends Domain<DateValue, NumberValue> {
         return QueryEngine.executeQuery(query, table, Locale.getDefault());
 
     }
+
+    /**
+     * @return one row per day that had at least one log, in the same "date", "sum-quantity"
+     * layout the query engine produces when grouping by date.
+     */
+    private DataTable toTable(GroupByAggregator days) throws TypeMismatchException {
+        DataTable table = new DataTable();
+        table.addColumn(new ColumnDescription("date", ValueType.DATE, "Date"));
+        table.addColumn(new ColumnDescription("sum-quantity", ValueType.NUMBER, "Sum Quantity"));
+        for (long day : days.sortedKeys()) {
+            int g = days.find(day);
+            TableRow row = new TableRow();
+            row.addCell(EpochDays.toDateValue(day));
+            row.addCell(days.isNull(g, 0) ? NumberValue.getNullValue()
+                    : new NumberValue(days.get(g, 0, GroupByAggregator.Aggregation.SUM)));
+            table.addRow(row);
+        }
+        return table;
+    }
 }
@@ -0,0 +1,145 @@
+package com.waterbear.loglibrary.plot;
+
+/**
+ * Reduces a projected series to about as many points as the plot is wide, so the cost of
+ * generating paths and drawing points is bounded by the screen rather than by the data. Works
+ * on interleaved x, y plot coordinates in ascending x order, as {@link CoordinateSeries}
+ * holds them, and always keeps the first and the last point.
+ */
+public abstract class Decimator {
+
+    /**
+     * @param width plot width in pixels
+     * @return most points {@link #decimate} produces for that width
+     */
+    public abstract int getMaxPoints(int width);
+
+    /**
+     * Copy a decimated series into {@code dst}, or the series unchanged if it has no more
+     * than {@link #getMaxPoints(int)} points.
+     *
+     * @param src   interleaved x, y coordinates
+     * @param count number of points in {@code src}
+     * @param width plot width in pixels
+     * @param dst   buffer with room for {@code 2 * count} floats
+     * @return number of points written to {@code dst}
+     */
+    public int decimate(float[] src, int count, int width, float[] dst) {
+        if (count <= getMaxPoints(width)) {
+            System.arraycopy(src, 0, dst, 0, 2 * count);
+            return count;
+        }
+        return reduce(src, count, width, dst);
+    }
+
+    protected abstract int reduce(float[] src, int count, int width, float[] dst);
+
+    /**
+     * Largest-triangle-three-buckets: splits the inner points into one bucket per output
+     * point and keeps from each the point spanning the largest triangle with the point kept
+     * from the previous bucket and the average of the next one. Preserves the visual shape of
+     * the series with one point per pixel column.
+     */
+    public static class LargestTriangleThreeBuckets extends Decimator {
+
+        @Override
+        public int getMaxPoints(int width) {
+            return Math.max(3, width);
+        }
+
+        @Override
+        protected int reduce(float[] src, int count, int width, float[] dst) {
+            int threshold = getMaxPoints(width);
+            double every = (double) (count - 2) / (threshold - 2);
+            int a = 0;
+            int out = 0;
+            dst[out++] = src[0];
+            dst[out++] = src[1];
+
+            for (int i = 0; i < threshold - 2; i++) {
+                int nextStart = (int) ((i + 1) * every) + 1;
+                int nextEnd = Math.min((int) ((i + 2) * every) + 1, count);
+                double avgX = 0;
+                double avgY = 0;
+                for (int j = nextStart; j < nextEnd; j++) {
+                    avgX += src[2 * j];
+                    avgY += src[2 * j + 1];
+                }
+                int nextCount = nextEnd - nextStart;
+                if (nextCount > 0) {
+                    avgX /= nextCount;
+                    avgY /= nextCount;
+                } else {
+                    avgX = src[2 * count - 2];
+                    avgY = src[2 * count - 1];
+                }
+
+                int start = (int) (i * every) + 1;
+                int end = (int) ((i + 1) * every) + 1;
+                float ax = src[2 * a];
+                float ay = src[2 * a + 1];
+                double maxArea = -1;
+                int chosen = start;
+                for (int j = start; j < end; j++) {
+                    double area = Math.abs((ax - avgX) * (src[2 * j + 1] - ay)
+                            - (ax - src[2 * j]) * (avgY - ay));
+                    if (area > maxArea) {
+                        maxArea = area;
+                        chosen = j;
+                    }
+                }
+                dst[out++] = src[2 * chosen];
+                dst[out++] = src[2 * chosen + 1];
+                a = chosen;
+            }
+
+            dst[out++] = src[2 * count - 2];
+            dst[out++] = src[2 * count - 1];
+            return out / 2;
+        }
+    }
+
+    /**
+     * M4: keeps the first, last, lowest and highest point of every pixel column, in their
+     * original order. Exact extremes, at up to four points per column.
+     */
+    public static class M4 extends Decimator {
+
+        @Override
+        public int getMaxPoints(int width) {
+            return 4 * (width + 1);
+        }
+
+        @Override
+        protected int reduce(float[] src, int count, int width, float[] dst) {
+            int out = 0;
+            int i = 0;
+            while (i < count) {
+                int column = (int) Math.floor(src[2 * i]);
+                int first = i;
+                int min = i;
+                int max = i;
+                int j = i + 1;
+                for (; j < count && (int) Math.floor(src[2 * j]) == column; j++) {
+                    if (src[2 * j + 1] < src[2 * min + 1]) min = j;
+                    if (src[2 * j + 1] > src[2 * max + 1]) max = j;
+                }
+                int last = j - 1;
+                out = emit(src, dst, out, first);
+                int lo = Math.min(min, max);
+                int hi = Math.max(min, max);
+                if (lo != first) out = emit(src, dst, out, lo);
+                if (hi != lo && hi != first) out = emit(src, dst, out, hi);
+                if (last != hi && last != lo && last != first) out = emit(src, dst, out, last);
+                i = j;
+            }
+            return out / 2;
+        }
+
+        private static int emit(float[] src, float[] dst, int out, int point) {
+            dst[out] = src[2 * point];
+            dst[out + 1] = src[2 * point + 1];
+            return out + 2;
+        }
+    }
+}
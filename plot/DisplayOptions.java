@@ -38,11 +38,25 @@ public class DisplayOptions {
     private DisplayOptions() {
     }
 
+    /**
+     * Options with the given values instead of ones read from attributes.
+     */
+    DisplayOptions(int lineWidth, int pointRadius, int pointColor, int lineColor) {
+        setValues(lineWidth, pointRadius, pointColor, lineColor);
+    }
+
     private void parseAttributes(TypedArray attributes) {
-        lineWidth = attributes.getDimensionPixelOffset(R.styleable.ChartView_line_width, 1);
-        pointRadius = attributes.getDimensionPixelOffset(R.styleable.ChartView_point_radius, 1);
-        pointColor = attributes.getColor(R.styleable.ChartView_point_color, Color.RED);
-        lineColor = attributes.getColor(R.styleable.ChartView_line_color, Color.RED);
+        setValues(attributes.getDimensionPixelOffset(R.styleable.ChartView_line_width, 1),
+                attributes.getDimensionPixelOffset(R.styleable.ChartView_point_radius, 1),
+                attributes.getColor(R.styleable.ChartView_point_color, Color.RED),
+                attributes.getColor(R.styleable.ChartView_line_color, Color.RED));
+    }
+
+    private void setValues(int lineWidth, int pointRadius, int pointColor, int lineColor) {
+        this.lineWidth = lineWidth;
+        this.pointRadius = pointRadius;
+        this.pointColor = pointColor;
+        this.lineColor = lineColor;
 
         mPathPaint = new Paint();
         mPathPaint.setColor(lineColor);
@@ -56,6 +70,10 @@ public class DisplayOptions {
 
     }
 
+    protected int getLineWidth() {
+        return lineWidth;
+    }
+
     protected int getPointRadius() {
         return pointRadius;
     }
@@ -1,38 +1,31 @@
 package com.waterbear.loglibrary.plot;
 
-import android.content.Context;
-import android.database.Cursor;
-import android.net.Uri;
-
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.visualization.datasource.base.InvalidQueryException;
 import com.google.visualization.datasource.base.TypeMismatchException;
-import com.google.visualization.datasource.datatable.ColumnDescription;
 import com.google.visualization.datasource.datatable.DataTable;
 import com.google.visualization.datasource.datatable.TableRow;
-import com.google.visualization.datasource.datatable.value.DateValue;
 import com.google.visualization.datasource.datatable.value.NumberValue;
 import com.google.visualization.datasource.datatable.value.Value;
-import com.google.visualization.datasource.datatable.value.ValueType;
 import com.google.visualization.datasource.query.AbstractColumn;
 import com.google.visualization.datasource.query.AggregationColumn;
 import com.google.visualization.datasource.query.AggregationType;
 import com.google.visualization.datasource.query.Query;
-import com.google.visualization.datasource.query.QueryGroup;
 import com.google.visualization.datasource.query.QuerySelection;
 import com.google.visualization.datasource.query.ScalarFunctionColumn;
 import com.google.visualization.datasource.query.SimpleColumn;
 import com.google.visualization.datasource.query.engine.QueryEngine;
 import com.google.visualization.datasource.query.scalarfunction.NumberMinMax;
-import com.waterbear.loglibrary.content.LogColumns;
-import com.waterbear.loglibrary.provider.TagInfoContract;
 
-import java.util.GregorianCalendar;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
-import java.util.Map;
-import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 /**
  *
@@ -47,24 +40,217 @@ public abstract class Domain<D extends Value, R extends Value> {
 
     DataTable data;
     private boolean loaded = false;
+    private volatile boolean logsChanged = false;
+    private volatile boolean shared = false;
+    private long watermark = Long.MIN_VALUE;
+    private boolean useQueryEngine = false;
+    private ColumnarSeriesData series;
+
+    private static final long BYTES_PER_TABLE_ROW = 256;
+    private static final int LOADER_THREADS = 2;
+    private static ListeningExecutorService loader;
 
     public Domain(D low, D high) {
         this.low = low;
         this.high = high;
     }
 
+    /**
+     * Load the whole window. If loading fails, e.g. with a {@link CancellationException},
+     * the domain is left unloaded rather than with a half-built state, and the next
+     * {@link #refresh} loads it again.
+     *
+     * @throws IllegalStateException if the domain is shared through a {@link DomainCache}
+     */
     public Domain load() {
+        checkNotShared();
+        logsChanged = false;
+        boolean done = false;
+        try {
+            watermark = Long.MIN_VALUE;
+            DataTable table = loadData();
+            R[] tableRange = getRange(table);
+            series = null;
+            data = table;
+            range = tableRange;
+            loaded = done = true;
+        } catch (TypeMismatchException | InvalidQueryException e) {
+            throw new IllegalStateException(e.getLocalizedMessage());
+        } finally {
+            if (!done) loaded = false;
+        }
+
+        return this;
+    }
+
+    /**
+     * Mark the domain loaded with data that was aggregated elsewhere, e.g. by a
+     * {@link BatchDomainLoader} reading many buttons at once.
+     */
+    protected Domain load(DataTable table) {
+        watermark = Long.MIN_VALUE;
+        series = null;
+        data = table;
+        range = getRange(data);
+        loaded = true;
+        return this;
+    }
+
+    /**
+     * Move the domain to a new window and bring it up to date. A domain that has not been
+     * loaded yet, or whose logs changed since, is simply loaded; otherwise {@link #refreshData()} decides how much work is
+     * needed, which for domains that keep their aggregates is only the logs newer than
+     * {@link #getWatermark()}. A refresh that fails leaves the domain unloaded, like a failed
+     * {@link #load()}.
+     *
+     * @param low  new domain lower limit
+     * @param high new domain upper limit
+     * @return this domain
+     * @throws IllegalStateException if the domain is shared through a {@link DomainCache}
+     */
+    public Domain refresh(D low, D high) {
+        checkNotShared();
+        this.low = low;
+        this.high = high;
+        if (!loaded || logsChanged) return load();
+
+        boolean done = false;
         try {
-            data = loadData();
-            range = getRange(data);
-            loaded = true;
+            DataTable table = refreshData();
+            R[] tableRange = getRange(table);
+            series = null;
+            data = table;
+            range = tableRange;
+            done = true;
         } catch (TypeMismatchException | InvalidQueryException e) {
             throw new IllegalStateException(e.getLocalizedMessage());
+        } finally {
+            if (!done) loaded = false;
         }
 
         return this;
     }
 
+    /**
+     * Refresh the domain without moving its window.
+     */
+    public Domain refresh() {
+        return refresh(low, high);
+    }
+
+    /**
+     * Call when the log provider notifies a change to the logs this domain reads. Refreshes
+     * only fold in logs from the watermark on, so logs inserted with older times, edited or
+     * deleted would be missed; the next {@link #refresh} does a full {@link #load()} instead.
+     */
+    public void onLogsChanged() {
+        logsChanged = true;
+    }
+
+    /**
+     * @return highest log time, in milliseconds, folded into this domain so far, or
+     * {@link Long#MIN_VALUE} if nothing has been read yet or the domain reads aggregates that
+     * keep no log times.
+     */
+    public long getWatermark() {
+        return watermark;
+    }
+
+    protected void advanceWatermark(long millis) {
+        if (millis > watermark) watermark = millis;
+    }
+
+    /**
+     * Fall back to the visualization {@link QueryEngine} for grouping and range computation
+     * instead of the built-in {@link GroupByAggregator}.
+     *
+     * @param useQueryEngine true to use the query engine
+     * @return this domain
+     */
+    public Domain setUseQueryEngine(boolean useQueryEngine) {
+        this.useQueryEngine = useQueryEngine;
+        return this;
+    }
+
+    protected boolean isUsingQueryEngine() {
+        return useQueryEngine;
+    }
+
+    /**
+     * @return everything besides its type and limits that decides what the domain loads, e.g.
+     * its log source and options; domains with equal specs load the same data. Subclasses add
+     * their own to the list.
+     */
+    protected List<Object> getLoadSpec() {
+        List<Object> spec = Lists.newArrayList();
+        spec.add(useQueryEngine);
+        return spec;
+    }
+
+    /**
+     * Mark the domain as cached for many callers, after which it may no longer be loaded or
+     * refreshed in place.
+     */
+    void share() {
+        shared = true;
+    }
+
+    private void checkNotShared() {
+        if (shared) {
+            throw new IllegalStateException("cached domains are shared; load a new one instead");
+        }
+    }
+
+    /**
+     * Load the domain on a background executor.
+     *
+     * @return future of this domain, loaded; cancelling it with interruption stops a load that
+     * is still reading logs.
+     */
+    public ListenableFuture<Domain> loadAsync(ListeningExecutorService executor) {
+        return executor.submit(new Callable<Domain>() {
+            @Override
+            public Domain call() {
+                return load();
+            }
+        });
+    }
+
+    /**
+     * Load the domain on the shared background loader.
+     */
+    public ListenableFuture<Domain> loadAsync() {
+        return loadAsync(getLoaderExecutor());
+    }
+
+    static synchronized ListeningExecutorService getLoaderExecutor() {
+        if (loader == null) {
+            ThreadFactory daemons = new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "domain-loader");
+                    t.setDaemon(true);
+                    return t;
+                }
+            };
+            loader = MoreExecutors.listeningDecorator(
+                    Executors.newFixedThreadPool(LOADER_THREADS, daemons));
+        }
+        return loader;
+    }
+
+    /**
+     * Abandon a load whose future was cancelled. Subclasses call this periodically while
+     * reading logs.
+     *
+     * @throws CancellationException if the loading thread was interrupted
+     */
+    protected static void checkCancelled() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("domain load cancelled");
+        }
+    }
+
     public DataTable getTable() {
         if (!loaded) throw new IllegalStateException("load table first!");
         return data;
@@ -72,7 +258,27 @@ public abstract class Domain<D extends Value, R extends Value> {
 
     protected abstract R[] getRange(DataTable table);
 
-    public abstract TableSeriesData getSeries();
+    /**
+     * @return series of the loaded domain, built on first use and shared by every caller until
+     * the domain is loaded or refreshed again.
+     */
+    public ColumnarSeriesData getSeries() {
+        if (!loaded) throw new IllegalStateException("load table first!");
+        if (series == null) {
+            series = createSeries();
+        }
+        return series;
+    }
+
+    protected abstract ColumnarSeriesData createSeries();
+
+    /**
+     * @return rough estimate, in bytes, of the memory held by the loaded domain
+     */
+    public long getApproximateSize() {
+        if (!loaded) return 0;
+        return BYTES_PER_TABLE_ROW * data.getNumberOfRows();
+    }
 
     /**
      * @return domain lower limit
@@ -94,6 +300,16 @@ public abstract class Domain<D extends Value, R extends Value> {
 
     protected abstract DataTable loadData() throws TypeMismatchException, InvalidQueryException;
 
+    /**
+     * Called by {@link #refresh(Value, Value)} once the domain has been loaded and the new
+     * limits are in place. Subclasses that can fold in newer logs and drop expired ones
+     * override this; the default reloads the whole window.
+     */
+    protected DataTable refreshData() throws TypeMismatchException, InvalidQueryException {
+        watermark = Long.MIN_VALUE;
+        return loadData();
+    }
+
     protected NumberValue[] getMinMaxValues(DataTable table, int column) {
         return getMinMaxNumbers(table, new int[]{column});
     }
@@ -112,6 +328,21 @@ public abstract class Domain<D extends Value, R extends Value> {
         if (columns.length < 1) {
             return new NumberValue[]{NumberValue.getNullValue(), NumberValue.getNullValue()};
         }
+        if (!useQueryEngine) {
+            GroupByAggregator limits = new GroupByAggregator(1, 1);
+            int all = limits.addRow(0);
+            for (TableRow row : table.getRows()) {
+                for (int idx : columns) {
+                    Value v = row.getCell(idx).getValue();
+                    if (!v.isNull()) {
+                        limits.add(all, 0, ((NumberValue) v).getValue());
+                    }
+                }
+            }
+            return toNumberValues(new double[]{
+                    limits.get(all, 0, GroupByAggregator.Aggregation.MIN),
+                    limits.get(all, 0, GroupByAggregator.Aggregation.MAX)});
+        }
 
         Query query = new Query();
         QuerySelection selection = new QuerySelection();
@@ -143,6 +374,16 @@ public abstract class Domain<D extends Value, R extends Value> {
         }
     }
 
+    /**
+     * @param minMax min at index 0 and max at index 1, {@link Double#NaN} for missing values
+     * @return the same pair as {@link NumberValue}s, using null values where NaN was given
+     */
+    protected static NumberValue[] toNumberValues(double[] minMax) {
+        return new NumberValue[]{
+                Double.isNaN(minMax[0]) ? NumberValue.getNullValue() : new NumberValue(minMax[0]),
+                Double.isNaN(minMax[1]) ? NumberValue.getNullValue() : new NumberValue(minMax[1])};
+    }
+
 
 }
 
@@ -0,0 +1,258 @@
+package com.waterbear.loglibrary.plot;
+
+import com.google.visualization.datasource.datatable.value.Value;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Process-wide cache of loaded domains, so charts showing the same button and window share one
+ * set of aggregates instead of each loading their own. Entries are keyed by domain type,
+ * button, limits and {@link Domain#getLoadSpec() load spec}, i.e. its log source and options,
+ * and evicted least recently used first once either the entry count or the
+ * estimated memory of the cached domains exceeds its limit.
+ * <p/>
+ * Cached domains are shared; loading or refreshing one in place throws. Call
+ * {@link #invalidate(int)} when a button's logs change and load a new domain instead. A key is loaded once even
+ * when several threads miss it at the same time: the first one loads it and the others wait
+ * for its result.
+ */
+public class DomainCache {
+
+    private static final int DEFAULT_MAX_ENTRIES = 64;
+    private static final long DEFAULT_MAX_BYTES = 4L * 1024 * 1024;
+    private static final DomainCache INSTANCE = new DomainCache(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_BYTES);
+
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Key, FutureTask<Domain>> loading = new HashMap<>();
+    private int maxEntries;
+    private long maxBytes;
+    private long bytes = 0;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    public DomainCache(int maxEntries, long maxBytes) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    public static DomainCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Identifies the result of loading a domain: its type, the button it reads, its limits and
+     * its load spec.
+     */
+    public static final class Key {
+        private final Class<?> type;
+        private final int buttonId;
+        private final Value low;
+        private final Value high;
+        private final List<Object> spec;
+
+        public Key(Class<?> type, int buttonId, Value low, Value high, List<Object> spec) {
+            this.type = type;
+            this.buttonId = buttonId;
+            this.low = low;
+            this.high = high;
+            this.spec = spec;
+        }
+
+        public static Key of(Domain domain, int buttonId) {
+            return new Key(domain.getClass(), buttonId, domain.getLowerLimit(),
+                    domain.getUpperLimit(), domain.getLoadSpec());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key k = (Key) o;
+            return buttonId == k.buttonId && type.equals(k.type)
+                    && low.equals(k.low) && high.equals(k.high) && spec.equals(k.spec);
+        }
+
+        @Override
+        public int hashCode() {
+            int h = type.hashCode();
+            h = 31 * h + buttonId;
+            h = 31 * h + low.hashCode();
+            h = 31 * h + high.hashCode();
+            return 31 * h + spec.hashCode();
+        }
+    }
+
+    private static class Entry {
+        final Domain domain;
+        final long bytes;
+
+        Entry(Domain domain, long bytes) {
+            this.domain = domain;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * Return the cached, loaded domain matching an unloaded one, or load it and cache it. A
+     * caller that misses while another one is loading the same key waits for that load, and
+     * counts as a hit.
+     *
+     * @param domain   domain to load on a miss
+     * @param buttonId button the domain reads
+     * @return loaded domain, possibly shared with other callers
+     */
+    public Domain load(final Domain domain, int buttonId) {
+        Key key = Key.of(domain, buttonId);
+        FutureTask<Domain> task;
+        boolean owner = false;
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                hits++;
+                return entry.domain;
+            }
+            task = loading.get(key);
+            if (task != null) {
+                hits++;
+            } else {
+                misses++;
+                task = new FutureTask<>(new Callable<Domain>() {
+                    @Override
+                    public Domain call() {
+                        return domain.load();
+                    }
+                });
+                loading.put(key, task);
+                owner = true;
+            }
+        }
+        if (!owner) return await(task);
+
+        Domain loaded = null;
+        task.run();
+        try {
+            loaded = await(task);
+        } finally {
+            synchronized (this) {
+                // an invalidation during the load dropped the task; its result may be stale
+                if (loading.get(key) == task) {
+                    loading.remove(key);
+                    if (loaded != null) put(key, loaded);
+                }
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * @return domain loaded by a task, rethrowing what the load threw
+     */
+    private static Domain await(FutureTask<Domain> task) {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e.getLocalizedMessage());
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new IllegalStateException(cause.getLocalizedMessage());
+        }
+    }
+
+    /**
+     * @return cached domain, or null; counts a hit or a miss.
+     */
+    public synchronized Domain get(Key key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.domain;
+    }
+
+    /**
+     * Cache a loaded domain. From here on it is shared, and loading or refreshing it in place
+     * throws.
+     */
+    public synchronized void put(Key key, Domain domain) {
+        domain.share();
+        Entry entry = new Entry(domain, domain.getApproximateSize());
+        Entry old = entries.put(key, entry);
+        if (old != null) bytes -= old.bytes;
+        bytes += entry.bytes;
+        trim();
+    }
+
+    /**
+     * Drop every cached domain of a button, e.g. after logs were added or edited. Loads of the
+     * button that are still running are not cached when they finish, and later callers load
+     * again rather than wait for them.
+     */
+    public synchronized void invalidate(int buttonId) {
+        Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Key, Entry> e = it.next();
+            if (e.getKey().buttonId == buttonId) {
+                bytes -= e.getValue().bytes;
+                it.remove();
+            }
+        }
+        Iterator<Key> pending = loading.keySet().iterator();
+        while (pending.hasNext()) {
+            if (pending.next().buttonId == buttonId) pending.remove();
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        loading.clear();
+        bytes = 0;
+    }
+
+    public synchronized void setLimits(int maxEntries, long maxBytes) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        trim();
+    }
+
+    private void trim() {
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext() && (entries.size() > maxEntries || bytes > maxBytes)) {
+            bytes -= it.next().bytes;
+            it.remove();
+            evictions++;
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getSizeInBytes() {
+        return bytes;
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+}
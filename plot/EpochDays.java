@@ -0,0 +1,89 @@
+package com.waterbear.loglibrary.plot;
+
+import com.google.visualization.datasource.datatable.value.DateValue;
+
+/**
+ * Conversions between calendar dates and epoch days (days since 1970-01-01), the primitive
+ * argument used for date columns in {@link ColumnarSeriesData}. Works on the proleptic
+ * Gregorian calendar without touching {@link java.util.Calendar}.
+ */
+final class EpochDays {
+
+    static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+
+    private EpochDays() {
+    }
+
+    /**
+     * @param year  calendar year
+     * @param month zero-based month, as used by {@link DateValue}
+     * @param day   one-based day of month
+     * @return days since 1970-01-01
+     */
+    static long of(int year, int month, int day) {
+        int m = month + 1;
+        long y = m <= 2 ? year - 1 : year;
+        long era = floorDiv(y, 400);
+        long yoe = y - era * 400;
+        long doy = (153 * (m + (m > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097 + doe - 719468;
+    }
+
+    static long of(DateValue date) {
+        return of(date.getYear(), date.getMonth(), date.getDayOfMonth());
+    }
+
+    /**
+     * @return epoch day containing the given local time, i.e. milliseconds already shifted by
+     * the timezone offset.
+     */
+    static long ofLocalMillis(long localMillis) {
+        return floorDiv(localMillis, MILLIS_PER_DAY);
+    }
+
+    static DateValue toDateValue(long epochDay) {
+        int[] ymd = toYearMonthDay(epochDay);
+        return new DateValue(ymd[0], ymd[1], ymd[2]);
+    }
+
+    /**
+     * @return year, zero-based month and one-based day of month.
+     */
+    static int[] toYearMonthDay(long epochDay) {
+        long z = epochDay + 719468;
+        long era = floorDiv(z, 146097);
+        long doe = z - era * 146097;
+        long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        long mp = (5 * doy + 2) / 153;
+        int day = (int) (doy - (153 * mp + 2) / 5 + 1);
+        int m = (int) (mp < 10 ? mp + 3 : mp - 9);
+        int year = (int) (yoe + era * 400 + (m <= 2 ? 1 : 0));
+        return new int[]{year, m - 1, day};
+    }
+
+    /**
+     * @return months since year 0 of the month containing an epoch day, i.e.
+     * {@code year * 12 + zeroBasedMonth}, without allocating.
+     */
+    static long monthOf(long epochDay) {
+        long z = epochDay + 719468;
+        long era = floorDiv(z, 146097);
+        long doe = z - era * 146097;
+        long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        long mp = (5 * doy + 2) / 153;
+        long m = mp < 10 ? mp + 3 : mp - 9;
+        long year = yoe + era * 400 + (m <= 2 ? 1 : 0);
+        return year * 12 + m - 1;
+    }
+
+    static long floorDiv(long x, long y) {
+        long q = x / y;
+        if ((x % y != 0) && ((x ^ y) < 0)) {
+            q--;
+        }
+        return q;
+    }
+}
@@ -0,0 +1,143 @@
+package com.waterbear.loglibrary.plot;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Reads logs from plain text files in a directory, one file per button named
+ * {@code <buttonId>.csv}, with one {@code millis,timezoneOffset,quantity} line per log in
+ * ascending time order. An empty quantity field is a null quantity. Meant for exporting logs
+ * off-device and replaying them through domains on a plain JVM.
+ */
+public class FileLogSource implements LogSource {
+
+    private final File directory;
+
+    public FileLogSource(File directory) {
+        this.directory = directory;
+    }
+
+    public File getFile(int buttonId) {
+        return new File(directory, buttonId + ".csv");
+    }
+
+    /**
+     * Append a log to a button's file. Logs must be appended in time order.
+     *
+     * @param quantity quantity, or {@link Double#NaN} for a log without one
+     */
+    public synchronized void append(int buttonId, long millis, long timezoneOffset,
+                                    double quantity) throws IOException {
+        Writer out = new FileWriter(getFile(buttonId), true);
+        try {
+            out.write(Long.toString(millis));
+            out.write(',');
+            out.write(Long.toString(timezoneOffset));
+            out.write(',');
+            if (!Double.isNaN(quantity)) {
+                out.write(Double.toString(quantity));
+            }
+            out.write('\n');
+        } finally {
+            out.close();
+        }
+    }
+
+    @Override
+    public LogCursor query(int buttonId, long afterMillis, long untilMillis) {
+        try {
+            return new LineCursor(new BufferedReader(new FileReader(getFile(buttonId))),
+                    afterMillis, untilMillis);
+        } catch (FileNotFoundException e) {
+            return new LineCursor(null, afterMillis, untilMillis);
+        }
+    }
+
+    private static class LineCursor implements LogCursor {
+        private final BufferedReader reader;
+        private final long after;
+        private final long until;
+        private long millis;
+        private long offset;
+        private boolean quantityNull;
+        private double quantity;
+        private boolean done;
+
+        LineCursor(BufferedReader reader, long after, long until) {
+            this.reader = reader;
+            this.after = after;
+            this.until = until;
+            this.done = reader == null;
+        }
+
+        @Override
+        public boolean moveToNext() {
+            try {
+                while (!done) {
+                    String line = reader.readLine();
+                    if (line == null) {
+                        done = true;
+                        break;
+                    }
+                    if (line.isEmpty()) continue;
+                    parse(line);
+                    if (millis <= after) continue;
+                    if (millis > until) {
+                        done = true;
+                        break;
+                    }
+                    return true;
+                }
+                return false;
+            } catch (IOException e) {
+                throw new IllegalStateException(e.getLocalizedMessage());
+            }
+        }
+
+        private void parse(String line) {
+            int c1 = line.indexOf(',');
+            int c2 = line.indexOf(',', c1 + 1);
+            if (c1 < 0 || c2 < 0) {
+                throw new IllegalStateException("malformed log line: " + line);
+            }
+            millis = Long.parseLong(line.substring(0, c1));
+            offset = Long.parseLong(line.substring(c1 + 1, c2));
+            quantityNull = c2 + 1 == line.length();
+            quantity = quantityNull ? 0 : Double.parseDouble(line.substring(c2 + 1));
+        }
+
+        @Override
+        public long getMillis() {
+            return millis;
+        }
+
+        @Override
+        public long getTimezoneOffset() {
+            return offset;
+        }
+
+        @Override
+        public boolean isQuantityNull() {
+            return quantityNull;
+        }
+
+        @Override
+        public double getQuantity() {
+            return quantity;
+        }
+
+        @Override
+        public void close() {
+            if (reader == null) return;
+            try {
+                reader.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package com.waterbear.loglibrary.plot;
+
+import java.util.Arrays;
+
+/**
+ * Group-by over primitive {@code long} keys (e.g. epoch days) computing SUM, MIN, MAX, COUNT
+ * and AVG of one or more {@code double} columns. Groups are located through an
+ * open-addressing hash table with linear probing and their aggregates live in parallel
+ * arrays, so folding a row allocates nothing once capacity has been reached.
+ * <p/>
+ * Typical use is one {@link #addRow(long)} per source row followed by an
+ * {@link #add(int, int, double)} for every non-null value in that row.
+ */
+public class GroupByAggregator {
+
+    public enum Aggregation {
+        SUM, MIN, MAX, COUNT, AVG
+    }
+
+    private static final int EMPTY = -1;
+
+    private final int columns;
+    private int[] table;
+    private long[] keys;
+    private int[] rows;
+    private double[] sums;
+    private double[] mins;
+    private double[] maxs;
+    private int[] counts;
+    private int size = 0;
+
+    public GroupByAggregator(int columns) {
+        this(columns, 16);
+    }
+
+    public GroupByAggregator(int columns, int expectedGroups) {
+        if (columns < 1) throw new IllegalArgumentException("at least one column is required");
+        this.columns = columns;
+        int groups = Math.max(4, expectedGroups);
+        keys = new long[groups];
+        rows = new int[groups];
+        sums = new double[groups * columns];
+        mins = new double[groups * columns];
+        maxs = new double[groups * columns];
+        counts = new int[groups * columns];
+        table = new int[tableSizeFor(groups)];
+        Arrays.fill(table, EMPTY);
+    }
+
+    /**
+     * Count a row against the group for {@code key}, creating the group if needed.
+     *
+     * @param key group key
+     * @return group index to pass to {@link #add(int, int, double)}
+     */
+    public int addRow(long key) {
+        int group = findOrInsert(key);
+        rows[group]++;
+        return group;
+    }
+
+    /**
+     * Count several rows against the group for {@code key} at once, e.g. when merging partial
+     * aggregates with {@link #merge(int, int, int, double, double, double)}.
+     */
+    public int addRows(long key, int rowCount) {
+        int group = findOrInsert(key);
+        rows[group] += rowCount;
+        return group;
+    }
+
+    /**
+     * Fold the aggregates of {@code count} non-null values, computed elsewhere, into a group.
+     */
+    public void merge(int group, int column, int count, double sum, double min, double max) {
+        if (count == 0) return;
+        int i = group * columns + column;
+        if (counts[i] == 0) {
+            mins[i] = min;
+            maxs[i] = max;
+        } else {
+            if (min < mins[i]) mins[i] = min;
+            if (max > maxs[i]) maxs[i] = max;
+        }
+        sums[i] += sum;
+        counts[i] += count;
+    }
+
+    /**
+     * Fold a non-null value into a group's aggregates for a column.
+     */
+    public void add(int group, int column, double value) {
+        int i = group * columns + column;
+        if (counts[i] == 0) {
+            mins[i] = value;
+            maxs[i] = value;
+        } else {
+            if (value < mins[i]) mins[i] = value;
+            if (value > maxs[i]) maxs[i] = value;
+        }
+        sums[i] += value;
+        counts[i]++;
+    }
+
+    /**
+     * @return group index for key, or -1 if no row has been added for it.
+     */
+    public int find(long key) {
+        int mask = table.length - 1;
+        for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+            int group = table[slot];
+            if (group == EMPTY) return -1;
+            if (keys[group] == key) return group;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getColumnCount() {
+        return columns;
+    }
+
+    public long getKey(int group) {
+        return keys[group];
+    }
+
+    /**
+     * @return number of rows added to the group, including rows whose values were null.
+     */
+    public int getRowCount(int group) {
+        return rows[group];
+    }
+
+    /**
+     * @return true if no non-null value has been added to the group for this column, in which
+     * case SUM, MIN, MAX and AVG are null.
+     */
+    public boolean isNull(int group, int column) {
+        return counts[group * columns + column] == 0;
+    }
+
+    /**
+     * @return the aggregate, or {@link Double#NaN} for a null aggregate. COUNT is never null.
+     */
+    public double get(int group, int column, Aggregation aggregation) {
+        int i = group * columns + column;
+        if (aggregation == Aggregation.COUNT) return counts[i];
+        if (counts[i] == 0) return Double.NaN;
+        switch (aggregation) {
+            case SUM:
+                return sums[i];
+            case MIN:
+                return mins[i];
+            case MAX:
+                return maxs[i];
+            case AVG:
+                return sums[i] / counts[i];
+            default:
+                throw new IllegalArgumentException("unknown aggregation " + aggregation);
+        }
+    }
+
+    /**
+     * Min and max of a per-group aggregate across all groups, skipping null aggregates.
+     *
+     * @return min is array[0], max is array[1]; both {@link Double#NaN} if every group is null.
+     */
+    public double[] getMinMax(int column, Aggregation aggregation) {
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (int g = 0; g < size; g++) {
+            if (aggregation != Aggregation.COUNT && isNull(g, column)) continue;
+            double v = get(g, column, aggregation);
+            if (v < min) min = v;
+            if (v > max) max = v;
+        }
+        if (min > max) return new double[]{Double.NaN, Double.NaN};
+        return new double[]{min, max};
+    }
+
+    /**
+     * @return group keys in ascending order.
+     */
+    public long[] sortedKeys() {
+        long[] sorted = Arrays.copyOf(keys, size);
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    /**
+     * Drop every group whose key is below {@code key}. Remaining groups keep their relative
+     * order but may be assigned new indices.
+     */
+    public void removeKeysBefore(long key) {
+        int kept = 0;
+        for (int g = 0; g < size; g++) {
+            if (keys[g] < key) continue;
+            if (kept != g) {
+                keys[kept] = keys[g];
+                rows[kept] = rows[g];
+                System.arraycopy(sums, g * columns, sums, kept * columns, columns);
+                System.arraycopy(mins, g * columns, mins, kept * columns, columns);
+                System.arraycopy(maxs, g * columns, maxs, kept * columns, columns);
+                System.arraycopy(counts, g * columns, counts, kept * columns, columns);
+            }
+            kept++;
+        }
+        if (kept == size) return;
+
+        Arrays.fill(rows, kept, size, 0);
+        Arrays.fill(sums, kept * columns, size * columns, 0);
+        Arrays.fill(counts, kept * columns, size * columns, 0);
+        size = kept;
+        rehash(table.length);
+    }
+
+    public void clear() {
+        Arrays.fill(rows, 0, size, 0);
+        Arrays.fill(sums, 0, size * columns, 0);
+        Arrays.fill(counts, 0, size * columns, 0);
+        Arrays.fill(table, EMPTY);
+        size = 0;
+    }
+
+    private int findOrInsert(long key) {
+        int mask = table.length - 1;
+        int slot = hash(key) & mask;
+        for (; ; slot = (slot + 1) & mask) {
+            int group = table[slot];
+            if (group == EMPTY) break;
+            if (keys[group] == key) return group;
+        }
+
+        if (size == keys.length) {
+            grow();
+        }
+        int group = size++;
+        keys[group] = key;
+        if (size * 2 > table.length) {
+            rehash(table.length * 2);
+        } else {
+            table[slot] = group;
+        }
+        return group;
+    }
+
+    private void grow() {
+        int groups = keys.length * 2;
+        keys = Arrays.copyOf(keys, groups);
+        rows = Arrays.copyOf(rows, groups);
+        sums = Arrays.copyOf(sums, groups * columns);
+        mins = Arrays.copyOf(mins, groups * columns);
+        maxs = Arrays.copyOf(maxs, groups * columns);
+        counts = Arrays.copyOf(counts, groups * columns);
+    }
+
+    private void rehash(int tableSize) {
+        if (table.length != tableSize) {
+            table = new int[tableSize];
+        }
+        Arrays.fill(table, EMPTY);
+        int mask = tableSize - 1;
+        for (int g = 0; g < size; g++) {
+            int slot = hash(keys[g]) & mask;
+            while (table[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = g;
+        }
+    }
+
+    private static int tableSizeFor(int groups) {
+        int n = Integer.highestOneBit(groups * 2 - 1) << 1;
+        return Math.max(8, n);
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,48 @@
+package com.waterbear.loglibrary.plot;
+
+import com.google.visualization.datasource.datatable.value.DateTimeValue;
+import com.google.visualization.datasource.datatable.value.ValueType;
+
+/**
+ * Domain object that represents hourly sums. Series arguments are hours since the epoch.
+ */
+public class HourlySumDomain extends IndexedSumDomain<DateTimeValue> {
+
+    public HourlySumDomain(DateTimeValue low, DateTimeValue high, TimeIndex index) {
+        super(low, high, index);
+    }
+
+    static long hourOf(DateTimeValue value) {
+        long day = EpochDays.of(value.getYear(), value.getMonth(), value.getDayOfMonth());
+        return TimeBucketer.Resolution.HOUR.bucketOf(day * EpochDays.MILLIS_PER_DAY
+                + value.getHourOfDay() * TimeBucketer.MILLIS_PER_HOUR);
+    }
+
+    @Override
+    protected long bucketOf(DateTimeValue limit) {
+        return hourOf(limit);
+    }
+
+    @Override
+    protected long firstHourOf(long bucket) {
+        return bucket;
+    }
+
+    @Override
+    protected double argumentOf(long bucket) {
+        return bucket;
+    }
+
+    @Override
+    protected DateTimeValue valueOf(long bucket) {
+        long day = TimeBucketer.Resolution.HOUR.firstDayOf(bucket);
+        int[] ymd = EpochDays.toYearMonthDay(day);
+        int hour = (int) (bucket - day * 24);
+        return new DateTimeValue(ymd[0], ymd[1], ymd[2], hour, 0, 0, 0);
+    }
+
+    @Override
+    protected ValueType getArgumentType() {
+        return ValueType.DATETIME;
+    }
+}
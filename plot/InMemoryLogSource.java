@@ -0,0 +1,164 @@
+package com.waterbear.loglibrary.plot;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps logs in primitive arrays per button, sorted by time, so windows are found by binary
+ * search. Has no Android dependencies, so domains can be fed and measured on a plain JVM.
+ * <p/>
+ * Appending in time order is cheap and does not disturb open cursors; inserting older logs
+ * copies the button's arrays.
+ */
+public class InMemoryLogSource implements LogSource {
+
+    private final Map<Integer, Logs> buttons = new HashMap<>();
+
+    public synchronized InMemoryLogSource add(int buttonId, long millis, long timezoneOffset,
+                                              double quantity) {
+        logsFor(buttonId).insert(millis, timezoneOffset, quantity);
+        return this;
+    }
+
+    public synchronized InMemoryLogSource addWithoutQuantity(int buttonId, long millis,
+                                                             long timezoneOffset) {
+        logsFor(buttonId).insert(millis, timezoneOffset, Double.NaN);
+        return this;
+    }
+
+    public synchronized int size(int buttonId) {
+        Logs logs = buttons.get(buttonId);
+        return logs == null ? 0 : logs.size;
+    }
+
+    @Override
+    public synchronized LogCursor query(int buttonId, long afterMillis, long untilMillis) {
+        Logs logs = buttons.get(buttonId);
+        if (logs == null) {
+            return new ArrayCursor(new long[0], new long[0], new double[0], 0, 0);
+        }
+        int from = upperBound(logs.millis, logs.size, afterMillis);
+        int to = upperBound(logs.millis, logs.size, untilMillis);
+        return new ArrayCursor(logs.millis, logs.offsets, logs.quantities, from, to);
+    }
+
+    private Logs logsFor(int buttonId) {
+        Logs logs = buttons.get(buttonId);
+        if (logs == null) {
+            logs = new Logs();
+            buttons.put(buttonId, logs);
+        }
+        return logs;
+    }
+
+    /**
+     * @return index of the first element greater than key
+     */
+    static int upperBound(long[] sorted, int size, long key) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted[mid] <= key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private static class Logs {
+        long[] millis = new long[16];
+        long[] offsets = new long[16];
+        double[] quantities = new double[16];
+        int size = 0;
+
+        void insert(long time, long offset, double quantity) {
+            int at = upperBound(millis, size, time);
+            if (at == size) {
+                if (size == millis.length) {
+                    int length = size * 2;
+                    millis = Arrays.copyOf(millis, length);
+                    offsets = Arrays.copyOf(offsets, length);
+                    quantities = Arrays.copyOf(quantities, length);
+                }
+            } else {
+                // copy instead of shifting in place so open cursors keep a consistent view
+                int length = size == millis.length ? size * 2 : millis.length;
+                millis = insertGap(millis, length, at, size);
+                offsets = insertGap(offsets, length, at, size);
+                quantities = insertGap(quantities, length, at, size);
+            }
+            millis[at] = time;
+            offsets[at] = offset;
+            quantities[at] = quantity;
+            size++;
+        }
+
+        private static long[] insertGap(long[] src, int length, int at, int size) {
+            long[] dst = new long[length];
+            System.arraycopy(src, 0, dst, 0, at);
+            System.arraycopy(src, at, dst, at + 1, size - at);
+            return dst;
+        }
+
+        private static double[] insertGap(double[] src, int length, int at, int size) {
+            double[] dst = new double[length];
+            System.arraycopy(src, 0, dst, 0, at);
+            System.arraycopy(src, at, dst, at + 1, size - at);
+            return dst;
+        }
+    }
+
+    private static class ArrayCursor implements LogCursor {
+        private final long[] millis;
+        private final long[] offsets;
+        private final double[] quantities;
+        private final int end;
+        private int position;
+
+        ArrayCursor(long[] millis, long[] offsets, double[] quantities, int from, int to) {
+            this.millis = millis;
+            this.offsets = offsets;
+            this.quantities = quantities;
+            this.position = from - 1;
+            this.end = to;
+        }
+
+        @Override
+        public boolean moveToNext() {
+            if (position + 1 >= end) {
+                position = end;
+                return false;
+            }
+            position++;
+            return true;
+        }
+
+        @Override
+        public long getMillis() {
+            return millis[position];
+        }
+
+        @Override
+        public long getTimezoneOffset() {
+            return offsets[position];
+        }
+
+        @Override
+        public boolean isQuantityNull() {
+            return Double.isNaN(quantities[position]);
+        }
+
+        @Override
+        public double getQuantity() {
+            return quantities[position];
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
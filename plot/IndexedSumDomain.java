@@ -0,0 +1,104 @@
+package com.waterbear.loglibrary.plot;
+
+import com.google.visualization.datasource.base.TypeMismatchException;
+import com.google.visualization.datasource.datatable.ColumnDescription;
+import com.google.visualization.datasource.datatable.DataTable;
+import com.google.visualization.datasource.datatable.TableRow;
+import com.google.visualization.datasource.datatable.value.NumberValue;
+import com.google.visualization.datasource.datatable.value.Value;
+import com.google.visualization.datasource.datatable.value.ValueType;
+
+import java.util.List;
+
+/**
+ * Domain of per-bucket sums answered from a {@link TimeIndex}. Each bucket between the
+ * buckets holding the lower and upper limits, inclusive, is one index query, and the range is
+ * taken from the same bucket aggregates, so neither loading nor {@link #getRange()} touches
+ * raw logs.
+ *
+ * @param <D> domain value type of the bucket arguments
+ */
+public abstract class IndexedSumDomain<D extends Value> extends Domain<D, NumberValue> {
+    private static final int SUM_COLUMN = 1;
+    private final TimeIndex index;
+    private GroupByAggregator buckets;
+
+    protected IndexedSumDomain(D low, D high, TimeIndex index) {
+        super(low, high);
+        this.index = index;
+    }
+
+    @Override
+    protected List<Object> getLoadSpec() {
+        List<Object> spec = super.getLoadSpec();
+        spec.add(index);
+        return spec;
+    }
+
+    /**
+     * @return key of the bucket holding a domain limit
+     */
+    protected abstract long bucketOf(D limit);
+
+    /**
+     * @return first hour since the epoch of a bucket; the bucket ends where the next one starts
+     */
+    protected abstract long firstHourOf(long bucket);
+
+    /**
+     * @return bucket argument as stored in {@link ColumnarSeriesData}
+     */
+    protected abstract double argumentOf(long bucket);
+
+    protected abstract D valueOf(long bucket);
+
+    protected abstract ValueType getArgumentType();
+
+    @Override
+    protected DataTable loadData() throws TypeMismatchException {
+        long first = bucketOf(low);
+        long last = bucketOf(high);
+        buckets = new GroupByAggregator(1, (int) Math.max(1, Math.min(last - first + 1, 1 << 16)));
+        long from = firstHourOf(first);
+        for (long bucket = first; bucket <= last; bucket++) {
+            long to = firstHourOf(bucket + 1);
+            index.query(from, to, buckets, bucket);
+            from = to;
+        }
+
+        DataTable table = new DataTable();
+        table.addColumn(new ColumnDescription("bucket", getArgumentType(), "Bucket"));
+        table.addColumn(new ColumnDescription("sum-quantity", ValueType.NUMBER, "Sum Quantity"));
+        for (long bucket : buckets.sortedKeys()) {
+            int g = buckets.find(bucket);
+            TableRow row = new TableRow();
+            row.addCell(valueOf(bucket));
+            row.addCell(buckets.isNull(g, 0) ? NumberValue.getNullValue()
+                    : new NumberValue(buckets.get(g, 0, GroupByAggregator.Aggregation.SUM)));
+            table.addRow(row);
+        }
+        return table;
+    }
+
+    @Override
+    protected NumberValue[] getRange(DataTable table) {
+        if (buckets == null) {
+            return getMinMaxValues(table, SUM_COLUMN);
+        }
+        return toNumberValues(buckets.getMinMax(0, GroupByAggregator.Aggregation.SUM));
+    }
+
+    @Override
+    protected ColumnarSeriesData createSeries() {
+        long[] keys = buckets.sortedKeys();
+        ColumnarSeriesData.Builder series = new ColumnarSeriesData.Builder(1, keys.length);
+        for (long bucket : keys) {
+            int g = buckets.find(bucket);
+            int row = series.addRow(argumentOf(bucket));
+            if (!buckets.isNull(g, 0)) {
+                series.setValue(row, 0, buckets.get(g, 0, GroupByAggregator.Aggregation.SUM));
+            }
+        }
+        return series.build();
+    }
+}
@@ -0,0 +1,203 @@
+package com.waterbear.loglibrary.plot;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Read side of the append-only binary log segment format. A segment holds the logs of one
+ * button as fixed-width records sorted by time:
+ * <pre>
+ * header  int magic, short version, short record size, long generation   (16 bytes)
+ * record  long millis, int timezone offset, int flags, double quantity   (24 bytes)
+ * </pre>
+ * all little endian. The file is mapped read-only and records are read in place; a sparse
+ * index holding the time of every {@value #INDEX_STRIDE}th record narrows a window's start to
+ * one block before a binary search inside it, after which the window is a sequential scan.
+ * <p/>
+ * The record count follows from the file length, so a record only becomes visible once it has
+ * been completely written, and a torn trailing record is ignored. Call {@link #remap()} to
+ * pick up records appended since the segment was opened. A segment replaced by
+ * {@link LogSegmentWriter#rebuild} gets a new generation, so its records are read afresh
+ * rather than taken for an extension of the old ones.
+ */
+public class LogSegment {
+
+    static final int MAGIC = 0x47534c54; // "TLSG"
+    static final short VERSION = 1;
+    static final int HEADER_SIZE = 16;
+    static final int RECORD_SIZE = 24;
+    static final int FLAG_NULL_QUANTITY = 1;
+    static final int INDEX_STRIDE = 128;
+
+    static final int GENERATION = 8;
+
+    private static final int MILLIS = 0;
+    private static final int OFFSET = 8;
+    private static final int FLAGS = 12;
+    private static final int QUANTITY = 16;
+
+    private final File file;
+    private MappedByteBuffer buffer;
+    private int count;
+    private long generation;
+    private long[] index;
+
+    public LogSegment(File file) throws IOException {
+        this.file = file;
+        remap();
+    }
+
+    /**
+     * Map the file again if it has grown since it was last mapped, or was replaced by one of
+     * another generation; the index is then built from scratch.
+     */
+    public synchronized void remap() throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        int records;
+        boolean extended;
+        try {
+            FileChannel channel = raf.getChannel();
+            long length = channel.size();
+            if (length < HEADER_SIZE) {
+                throw new IOException("not a log segment: " + file);
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(header, 0);
+            checkHeader(header, file);
+            long fileGeneration = header.getLong(GENERATION);
+            records = (int) ((length - HEADER_SIZE) / RECORD_SIZE);
+            boolean sameGeneration = buffer != null && fileGeneration == generation;
+            if (sameGeneration && records == count) return;
+            extended = sameGeneration && records > count;
+
+            long mapped = HEADER_SIZE + (long) records * RECORD_SIZE;
+            if (mapped > Integer.MAX_VALUE) {
+                throw new IOException("segment too large to map: " + file);
+            }
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, 0, mapped);
+            map.order(ByteOrder.LITTLE_ENDIAN);
+            buffer = map;
+            generation = fileGeneration;
+        } finally {
+            raf.close();
+        }
+
+        long[] newIndex = new long[(records + INDEX_STRIDE - 1) / INDEX_STRIDE];
+        int reuse = extended ? Math.min(index.length, newIndex.length) : 0;
+        // when the same segment grew, the last block may have too, but its first record
+        // never changes
+        if (reuse > 0) System.arraycopy(index, 0, newIndex, 0, reuse);
+        for (int i = reuse; i < newIndex.length; i++) {
+            newIndex[i] = millisAt(i * INDEX_STRIDE);
+        }
+        index = newIndex;
+        count = records;
+    }
+
+    static void checkHeader(ByteBuffer header, File file) throws IOException {
+        if (header.getInt(0) != MAGIC) {
+            throw new IOException("not a log segment: " + file);
+        }
+        if (header.getShort(4) != VERSION || header.getShort(6) != RECORD_SIZE) {
+            throw new IOException("unsupported log segment version in " + file);
+        }
+    }
+
+    public synchronized int size() {
+        return count;
+    }
+
+    /**
+     * @return cursor over records with {@code afterMillis < time <= untilMillis}
+     */
+    public synchronized LogSource.LogCursor query(long afterMillis, long untilMillis) {
+        int from = upperBound(afterMillis);
+        int to = untilMillis == LogSource.UNBOUNDED ? count : upperBound(untilMillis);
+        return new SegmentCursor(buffer, from, to);
+    }
+
+    /**
+     * @return index of the first record later than millis
+     */
+    private int upperBound(long millis) {
+        // last index block starting at or before millis
+        int lo = 0;
+        int hi = index.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (index[mid] <= millis) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        if (lo == 0) return 0;
+
+        int first = (lo - 1) * INDEX_STRIDE;
+        int last = Math.min(first + INDEX_STRIDE, count);
+        while (first < last) {
+            int mid = (first + last) >>> 1;
+            if (millisAt(mid) <= millis) {
+                first = mid + 1;
+            } else {
+                last = mid;
+            }
+        }
+        return first;
+    }
+
+    private long millisAt(int record) {
+        return buffer.getLong(HEADER_SIZE + record * RECORD_SIZE + MILLIS);
+    }
+
+    private static class SegmentCursor implements LogSource.LogCursor {
+        private final ByteBuffer buffer;
+        private final int end;
+        private int position;
+
+        SegmentCursor(ByteBuffer buffer, int from, int to) {
+            this.buffer = buffer;
+            this.end = HEADER_SIZE + to * RECORD_SIZE;
+            this.position = HEADER_SIZE + (from - 1) * RECORD_SIZE;
+        }
+
+        @Override
+        public boolean moveToNext() {
+            if (position + RECORD_SIZE >= end) {
+                position = end;
+                return false;
+            }
+            position += RECORD_SIZE;
+            return true;
+        }
+
+        @Override
+        public long getMillis() {
+            return buffer.getLong(position + MILLIS);
+        }
+
+        @Override
+        public long getTimezoneOffset() {
+            return buffer.getInt(position + OFFSET);
+        }
+
+        @Override
+        public boolean isQuantityNull() {
+            return (buffer.getInt(position + FLAGS) & FLAG_NULL_QUANTITY) != 0;
+        }
+
+        @Override
+        public double getQuantity() {
+            return buffer.getDouble(position + QUANTITY);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.waterbear.loglibrary.plot;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Appends logs to a {@link LogSegment} file, e.g. to mirror every log the app saves. Records
+ * must arrive in time order; a log older than the newest one in the segment can't be appended
+ * and the segment has to be rebuilt with {@link #rebuild(File, LogSource.LogCursor)} instead.
+ */
+public class LogSegmentWriter {
+
+    private final RandomAccessFile raf;
+    private final FileChannel channel;
+    private final ByteBuffer record = ByteBuffer.allocate(LogSegment.RECORD_SIZE)
+            .order(ByteOrder.LITTLE_ENDIAN);
+    private long lastMillis = Long.MIN_VALUE;
+
+    /**
+     * Open a segment for appending, creating it if it doesn't exist and dropping a torn
+     * trailing record left by an interrupted write.
+     */
+    public LogSegmentWriter(File file) throws IOException {
+        this(file, System.currentTimeMillis());
+    }
+
+    /**
+     * @param generation written to the header if the segment is created
+     */
+    private LogSegmentWriter(File file, long generation) throws IOException {
+        raf = new RandomAccessFile(file, "rw");
+        channel = raf.getChannel();
+        try {
+            long length = channel.size();
+            if (length < LogSegment.HEADER_SIZE) {
+                writeHeader(generation);
+            } else {
+                ByteBuffer header = ByteBuffer.allocate(LogSegment.HEADER_SIZE)
+                        .order(ByteOrder.LITTLE_ENDIAN);
+                channel.read(header, 0);
+                LogSegment.checkHeader(header, file);
+                long records = (length - LogSegment.HEADER_SIZE) / LogSegment.RECORD_SIZE;
+                long end = LogSegment.HEADER_SIZE + records * LogSegment.RECORD_SIZE;
+                if (end != length) channel.truncate(end);
+                if (records > 0) {
+                    ByteBuffer last = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+                    channel.read(last, end - LogSegment.RECORD_SIZE);
+                    lastMillis = last.getLong(0);
+                }
+            }
+            channel.position(channel.size());
+        } catch (IOException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Replace a segment with the logs read from a cursor, which must be sorted by time. The
+     * cursor is closed. The new segment gets a later generation than the one it replaces, so
+     * open {@link LogSegment}s notice the change on their next {@link LogSegment#remap()}.
+     */
+    public static void rebuild(File file, LogSource.LogCursor logs) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        if (tmp.exists() && !tmp.delete()) {
+            throw new IOException("could not remove " + tmp);
+        }
+        long generation = Math.max(readGeneration(file) + 1, System.currentTimeMillis());
+        LogSegmentWriter writer = new LogSegmentWriter(tmp, generation);
+        try {
+            while (logs.moveToNext()) {
+                if (logs.isQuantityNull()) {
+                    writer.appendWithoutQuantity(logs.getMillis(), logs.getTimezoneOffset());
+                } else {
+                    writer.append(logs.getMillis(), logs.getTimezoneOffset(), logs.getQuantity());
+                }
+            }
+            writer.flush();
+        } finally {
+            logs.close();
+            writer.close();
+        }
+        if (!tmp.renameTo(file)) {
+            throw new IOException("could not replace " + file);
+        }
+    }
+
+    public synchronized void append(long millis, long timezoneOffset, double quantity)
+            throws IOException {
+        write(millis, timezoneOffset, 0, quantity);
+    }
+
+    public synchronized void appendWithoutQuantity(long millis, long timezoneOffset)
+            throws IOException {
+        write(millis, timezoneOffset, LogSegment.FLAG_NULL_QUANTITY, 0);
+    }
+
+    private void write(long millis, long timezoneOffset, int flags, double quantity)
+            throws IOException {
+        if (millis < lastMillis) {
+            throw new IllegalArgumentException(String.format(
+                    "log at %s is older than the newest segment record at %s", millis, lastMillis));
+        }
+        record.clear();
+        record.putLong(millis).putInt((int) timezoneOffset).putInt(flags).putDouble(quantity);
+        record.flip();
+        while (record.hasRemaining()) {
+            channel.write(record);
+        }
+        lastMillis = millis;
+    }
+
+    /**
+     * Force appended records to storage.
+     */
+    public synchronized void flush() throws IOException {
+        channel.force(false);
+    }
+
+    public synchronized void close() throws IOException {
+        raf.close();
+    }
+
+    /**
+     * @return generation of an existing segment, or {@link Long#MIN_VALUE} if there is no
+     * valid one
+     */
+    private static long readGeneration(File file) throws IOException {
+        if (file.length() < LogSegment.HEADER_SIZE) return Long.MIN_VALUE;
+        RandomAccessFile in = new RandomAccessFile(file, "r");
+        try {
+            ByteBuffer header = ByteBuffer.allocate(LogSegment.HEADER_SIZE)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            in.getChannel().read(header, 0);
+            // a damaged segment is as good as none
+            if (header.getInt(0) != LogSegment.MAGIC) return Long.MIN_VALUE;
+            return header.getLong(LogSegment.GENERATION);
+        } finally {
+            in.close();
+        }
+    }
+
+    private void writeHeader(long generation) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(LogSegment.HEADER_SIZE)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(LogSegment.MAGIC).putShort(LogSegment.VERSION)
+                .putShort((short) LogSegment.RECORD_SIZE).putLong(generation);
+        header.flip();
+        channel.truncate(0);
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+    }
+}
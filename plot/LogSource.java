@@ -0,0 +1,48 @@
+package com.waterbear.loglibrary.plot;
+
+/**
+ * Where domains read raw logs from. A source yields, for one button and time window, the time,
+ * timezone offset and quantity of every log in ascending time order, without committing the
+ * caller to any particular storage.
+ */
+public interface LogSource {
+
+    /**
+     * Upper bound to pass to {@link #query(int, long, long)} for an open ended window.
+     */
+    long UNBOUNDED = Long.MAX_VALUE;
+
+    /**
+     * Open a cursor over the logs of a button with {@code afterMillis < time <= untilMillis},
+     * sorted by time ascending. The caller must close the returned cursor.
+     *
+     * @param buttonId    button whose logs are read
+     * @param afterMillis exclusive lower bound, epoch milliseconds
+     * @param untilMillis inclusive upper bound, epoch milliseconds, or {@link #UNBOUNDED}
+     */
+    LogCursor query(int buttonId, long afterMillis, long untilMillis);
+
+    /**
+     * Forward-only view of the logs selected by a query. Values are read from the current row
+     * after {@link #moveToNext()} returned true.
+     */
+    interface LogCursor {
+        boolean moveToNext();
+
+        /**
+         * @return log time in epoch milliseconds
+         */
+        long getMillis();
+
+        /**
+         * @return offset, in milliseconds, of the timezone the log was made in
+         */
+        long getTimezoneOffset();
+
+        boolean isQuantityNull();
+
+        double getQuantity();
+
+        void close();
+    }
+}
@@ -0,0 +1,40 @@
+package com.waterbear.loglibrary.plot;
+
+import com.google.visualization.datasource.datatable.value.DateValue;
+import com.google.visualization.datasource.datatable.value.ValueType;
+
+/**
+ * Domain object that represents monthly sums. Each bucket is represented by the date it starts
+ * on, so series arguments are epoch days and the domain plots on a date axis.
+ */
+public class MonthlySumDomain extends IndexedSumDomain<DateValue> {
+
+    public MonthlySumDomain(DateValue low, DateValue high, TimeIndex index) {
+        super(low, high, index);
+    }
+
+    @Override
+    protected long bucketOf(DateValue limit) {
+        return TimeBucketer.Resolution.MONTH.bucketOf(EpochDays.of(limit) * EpochDays.MILLIS_PER_DAY);
+    }
+
+    @Override
+    protected long firstHourOf(long bucket) {
+        return TimeBucketer.Resolution.HOUR.bucketOf(TimeBucketer.Resolution.MONTH.startOf(bucket));
+    }
+
+    @Override
+    protected double argumentOf(long bucket) {
+        return TimeBucketer.Resolution.MONTH.firstDayOf(bucket);
+    }
+
+    @Override
+    protected DateValue valueOf(long bucket) {
+        return EpochDays.toDateValue(TimeBucketer.Resolution.MONTH.firstDayOf(bucket));
+    }
+
+    @Override
+    protected ValueType getArgumentType() {
+        return ValueType.DATE;
+    }
+}
@@ -0,0 +1,130 @@
+package com.waterbear.loglibrary.plot;
+
+/**
+ * {@link PathSink} that records commands compactly: one byte per command and its
+ * coordinates in one flat float buffer, both reused across {@link #rewind()}s. Holds no
+ * platform objects, so it can be kept or cached in place of a drawn path and
+ * {@link #replay replayed} into any other sink later.
+ */
+public class PathCommandBuffer implements PathSink {
+
+    public static final byte MOVE = 0;
+    public static final byte LINE = 1;
+    public static final byte CUBIC = 2;
+
+    public static final Factory FACTORY = new Factory() {
+        @Override
+        public PathSink create() {
+            return new PathCommandBuffer();
+        }
+    };
+
+    private byte[] commands = new byte[16];
+    private float[] coordinates = new float[32];
+    private int commandCount;
+    private int coordinateCount;
+
+    @Override
+    public void moveTo(float x, float y) {
+        add(MOVE, 2);
+        coordinates[coordinateCount++] = x;
+        coordinates[coordinateCount++] = y;
+    }
+
+    @Override
+    public void lineTo(float x, float y) {
+        add(LINE, 2);
+        coordinates[coordinateCount++] = x;
+        coordinates[coordinateCount++] = y;
+    }
+
+    @Override
+    public void cubicTo(float x1, float y1, float x2, float y2, float x3, float y3) {
+        add(CUBIC, 6);
+        float[] c = coordinates;
+        int i = coordinateCount;
+        c[i] = x1;
+        c[i + 1] = y1;
+        c[i + 2] = x2;
+        c[i + 3] = y2;
+        c[i + 4] = x3;
+        c[i + 5] = y3;
+        coordinateCount = i + 6;
+    }
+
+    @Override
+    public void rewind() {
+        commandCount = 0;
+        coordinateCount = 0;
+    }
+
+    private void add(byte command, int coordinateLength) {
+        if (commandCount == commands.length) {
+            byte[] grown = new byte[commands.length + (commands.length >> 1)];
+            System.arraycopy(commands, 0, grown, 0, commandCount);
+            commands = grown;
+        }
+        if (coordinateCount + coordinateLength > coordinates.length) {
+            float[] grown = new float[Math.max(coordinateCount + coordinateLength,
+                    coordinates.length + (coordinates.length >> 1))];
+            System.arraycopy(coordinates, 0, grown, 0, coordinateCount);
+            coordinates = grown;
+        }
+        commands[commandCount++] = command;
+    }
+
+    /**
+     * Send the recorded commands, in order, to another sink.
+     */
+    public void replay(PathSink sink) {
+        float[] c = coordinates;
+        int k = 0;
+        for (int i = 0; i < commandCount; i++) {
+            switch (commands[i]) {
+                case MOVE:
+                    sink.moveTo(c[k], c[k + 1]);
+                    k += 2;
+                    break;
+                case LINE:
+                    sink.lineTo(c[k], c[k + 1]);
+                    k += 2;
+                    break;
+                default:
+                    sink.cubicTo(c[k], c[k + 1], c[k + 2], c[k + 3], c[k + 4], c[k + 5]);
+                    k += 6;
+                    break;
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return commandCount == 0;
+    }
+
+    /**
+     * @return number of commands
+     */
+    public int size() {
+        return commandCount;
+    }
+
+    /**
+     * @return commands, {@link #MOVE}, {@link #LINE} or {@link #CUBIC}; only the first
+     * {@link #size()} are valid.
+     */
+    public byte[] getCommands() {
+        return commands;
+    }
+
+    /**
+     * @return coordinates of all commands in order, two per move and line, six per cubic;
+     * only the first {@link #getCoordinateCount()} are valid.
+     */
+    public float[] getCoordinates() {
+        return coordinates;
+    }
+
+    public int getCoordinateCount() {
+        return coordinateCount;
+    }
+}
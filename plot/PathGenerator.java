@@ -1,15 +1,38 @@
 package com.waterbear.loglibrary.plot;
 
-import android.graphics.Path;
-
 /**
 * Created by rich on 3/26/15.
+* <p/>
+* Points and control points are flat interleaved buffers: x0, y0, x1, y1, ... for points and
+* c1x, c1y, c2x, c2y per point for control points. A generator is meant to be kept and
+* re-used for every recompute of a series; its control point buffer and path are double
+* buffered, so the results of the previous {@link #generate} stay intact while the next one
+* is made. Generators whose control points only depend on nearby points can also
+* {@link #append} to a series that changed only at its end, reusing the control points of the
+* rest.
+* <p/>
+* Paths are built by emitting commands into {@link PathSink}s made by the generator's
+* {@link #setSinkFactory factory}, {@link PathCommandBuffer}s unless another is set, so the
+* curve math does not depend on Android; {@link PointPlot} draws them as Android paths.
 */
 public abstract class PathGenerator {
-    private float[][] controlPoints;
-    private Path mPath;
+    private final SwapBuffer controlPoints = new SwapBuffer();
+    private PathSink.Factory sinkFactory = PathCommandBuffer.FACTORY;
+    private PathSink mPath;
+    private PathSink mSparePath;
     private boolean generated = false;
 
+    /**
+     * Choose what the paths are built into, e.g. {@link AndroidPathSink#FACTORY} to draw them
+     * without replaying them first. Paths generated before are dropped.
+     */
+    public PathGenerator setSinkFactory(PathSink.Factory factory) {
+        sinkFactory = factory;
+        mPath = mSparePath = null;
+        generated = false;
+        return this;
+    }
+
     /**
      * Generate a path from an array of [x, y] coordinates.
      *
@@ -17,46 +40,127 @@ public abstract class PathGenerator {
      * @return
      */
     public PathGenerator generate(float[][] points) {
+        float[] flat = new float[2 * points.length];
+        for (int i = 0; i < points.length; i++) {
+            flat[2 * i] = points[i][0];
+            flat[2 * i + 1] = points[i][1];
+        }
+        return generate(flat, points.length);
+    }
+
+    /**
+     * Generate a path from the first {@code count} points of an interleaved x, y buffer.
+     */
+    public PathGenerator generate(float[] points, int count) {
         generated = true;
-        if (points.length<2) {
+        if (count<2) {
+            controlPoints.publish(0);
+            mPath = null;
             return this;
         }
-        controlPoints = createControlPoints(points);
-        mPath = createPathFromPoints(points, controlPoints);
+        float[] control = controlPoints.acquire(4 * count);
+        createControlPoints(points, count, control);
+        controlPoints.publish(4 * count);
+        buildPath(points, count, control);
         return this;
     }
 
     /**
-     * Generate an array of control point pairs. Each row of the returned array contains a pair
-     * of points (x1,y1,x2,y2), that are coordinates of control points to be applied to the
-     * generated path for each respective point.
+     * Same as {@link #generate(float[], int)} for points of which the first {@code unchanged}
+     * are the ones the last result was generated from, e.g. a series that grew at its end.
+     * The control points of the unchanged points that do not depend on a changed one, see
+     * {@link #getAppendReach()}, are copied from the last result and only the rest are
+     * computed; the path is built anew. The last result stays intact either way.
+     * <p/>
+     * Falls back to {@link #generate(float[], int)} for generators that can not append and when
+     * there is nothing to reuse.
+     */
+    public PathGenerator append(float[] points, int count, int unchanged) {
+        int reach = getAppendReach();
+        int from = Math.min(unchanged, controlPoints.getFrontSize() / 4) - reach;
+        if (reach < 0 || !generated || count < 2 || unchanged > count || from < 1) {
+            return generate(points, count);
+        }
+        float[] control = controlPoints.acquire(4 * count);
+        System.arraycopy(controlPoints.getFront(), 0, control, 0, 4 * from);
+        updateControlPoints(points, from, count, control);
+        controlPoints.publish(4 * count);
+        buildPath(points, count, control);
+        return this;
+    }
+
+    private void buildPath(float[] points, int count, float[] control) {
+        PathSink path = mSparePath != null ? mSparePath : sinkFactory.create();
+        path.rewind();
+        if (createPathFromPoints(points, count, control, path)) {
+            mSparePath = mPath;
+            mPath = path;
+        } else {
+            mSparePath = path;
+            mPath = null;
+        }
+    }
+
+    /**
+     * @return number of points before a changed one whose control points change with it, or
+     * -1 if this generator can not {@link #append}
+     */
+    protected int getAppendReach() {
+        return -1;
+    }
+
+    /**
+     * Compute the control points of points {@code from} to {@code count - 1}, leaving the ones
+     * before as they are. Only called if {@link #getAppendReach()} is not negative.
+     */
+    protected void updateControlPoints(float[] points, int from, int count, float[] control) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Fill an array with control point pairs. Every four floats of {@code control} hold a
+     * pair of points (x1,y1,x2,y2) that are coordinates of control points to be applied to
+     * the generated path for each respective point.
      *
-     * @param points
-     * @return
+     * @param points  interleaved x, y coordinates
+     * @param count   number of points
+     * @param control buffer for {@code 4 * count} floats
      */
-    protected abstract float[][] createControlPoints(float[][] points);
+    protected abstract void createControlPoints(float[] points, int count, float[] control);
 
     /**
-     * Generate path from array of x, y points and an array of control points x1, y1, x2, y2
-     * that represent the control points to be applied to the respective points.
+     * Generate path from x, y points and the control points x1, y1, x2, y2 that are applied
+     * to the respective points.
      *
-     * @param points
-     * @param controlPoints
-     * @return
+     * @param path empty path to add to
+     * @return false if there is no path to draw
      */
-    protected abstract Path createPathFromPoints(float[][] points, float[][] controlPoints);
+    protected abstract boolean createPathFromPoints(float[] points, int count,
+                                                    float[] controlPoints, PathSink path);
 
-    public Path getPath() {
+    /**
+     * @return sink the last path was built into, or null if there is nothing to draw
+     */
+    public PathSink getPathSink() {
         checkGenerated();
         return mPath;
     }
 
     /**
-     * @return array of control point coordinate <i>pairs</i>, c1x, c1y, c2x, c2y
+     * @return control point coordinate <i>pairs</i>, c1x, c1y, c2x, c2y for every point;
+     * only the first {@link #getControlPointsSize()} entries are valid.
+     */
+    public float[] getControlPoints() {
+        checkGenerated();
+        return controlPoints.getFront();
+    }
+
+    /**
+     * @return number of valid floats in {@link #getControlPoints()}
      */
-    public float[][] getControlPoints() {
+    public int getControlPointsSize() {
         checkGenerated();
-        return controlPoints;
+        return controlPoints.getFrontSize();
     }
 
     private void checkGenerated() {
@@ -65,25 +169,75 @@ public abstract class PathGenerator {
         }
     }
 
+    /**
+     * Join points with cubic curves, leaving each point by its second control point and
+     * arriving at the next by that one's first.
+     */
+    static void addCubics(float[] points, int count, float[] controlPoints, PathSink path) {
+        path.moveTo(points[0], points[1]);
+        for (int i = 1; i < count; i++) {
+            path.cubicTo(
+                    controlPoints[4 * i - 2],
+                    controlPoints[4 * i - 1],
+                    controlPoints[4 * i],
+                    controlPoints[4 * i + 1],
+                    points[2 * i],
+                    points[2 * i + 1]);
+        }
+    }
+
     public static class LinePath extends PathGenerator {
+        private final PolylineSimplifier simplifier;
+        private float[] simplified = new float[0];
+
+        public LinePath() {
+            this(null);
+        }
+
+        /**
+         * @param simplifier drops points that would not visibly change the line before the
+         *                   path is built, or null to join every point; control points are
+         *                   still made for every point
+         */
+        public LinePath(PolylineSimplifier simplifier) {
+            this.simplifier = simplifier;
+        }
 
         @Override
-        public Path createPathFromPoints(float[][] points, float[][] controlPoints) {
-            Path path = new Path();
-            for (float[] point : points) {
-                if (path.isEmpty()) {
-                    path.moveTo(point[0], point[1]);
-                } else {
-                    path.lineTo(point[0], point[1]);
+        public boolean createPathFromPoints(float[] points, int count, float[] controlPoints,
+                                            PathSink path) {
+            if (simplifier != null) {
+                if (simplified.length < 2 * count) {
+                    simplified = new float[2 * count];
                 }
+                count = simplifier.simplify(points, count, simplified);
+                points = simplified;
             }
+            path.moveTo(points[0], points[1]);
+            for (int i = 1; i < count; i++) {
+                path.lineTo(points[2 * i], points[2 * i + 1]);
+            }
+
+            return true;
+        }
 
-            return path;
+        @Override
+        public void createControlPoints(float[] points, int count, float[] control) {
+            updateControlPoints(points, 0, count, control);
+        }
+
+        @Override
+        protected int getAppendReach() {
+            return 0;
         }
 
         @Override
-        public float[][] createControlPoints(float[][] points) {
-            return new float[0][0];
+        protected void updateControlPoints(float[] points, int from, int count,
+                                           float[] control) {
+            for (int i = from; i < count; i++) {
+                control[4 * i] = control[4 * i + 2] = points[2 * i];
+                control[4 * i + 1] = control[4 * i + 3] = points[2 * i + 1];
+            }
         }
 
     }
@@ -91,273 +245,226 @@ public abstract class PathGenerator {
     public static class NoPath extends PathGenerator {
 
         @Override
-        protected float[][] createControlPoints(float[][] points) {
-            return null;
+        protected void createControlPoints(float[] points, int count, float[] control) {
+            updateControlPoints(points, 0, count, control);
+        }
+
+        @Override
+        protected int getAppendReach() {
+            return 0;
+        }
+
+        @Override
+        protected void updateControlPoints(float[] points, int from, int count,
+                                           float[] control) {
+            for (int i = from; i < count; i++) {
+                control[4 * i] = control[4 * i + 2] = points[2 * i];
+                control[4 * i + 1] = control[4 * i + 3] = points[2 * i + 1];
+            }
         }
 
         @Override
-        protected Path createPathFromPoints(float[][] points, float[][] controlPoints) {
-            return null;
+        protected boolean createPathFromPoints(float[] points, int count, float[] controlPoints,
+                                               PathSink path) {
+            return false;
         }
     }
 
     public static class SmoothedStepPath extends PathGenerator {
 
         @Override
-        public Path createPathFromPoints(float[][] points, float[][] controlPoints) {
-            Path path = new Path();
-            for (int i = 0; i < points.length; i++) {
-                float[] point = points[i];
-                if (path.isEmpty()) {
-                    path.moveTo(point[0], point[1]);
-                } else {
-                    path.cubicTo(
-                            controlPoints[i - 1][2],
-                            controlPoints[i - 1][3],
-                            controlPoints[i][0],
-                            controlPoints[i][1],
-                            point[0],
-                            point[1]);
-
-                }
-            }
+        public boolean createPathFromPoints(float[] points, int count, float[] controlPoints,
+                                            PathSink path) {
+            addCubics(points, count, controlPoints, path);
+            return true;
+        }
 
-            return path;
+        @Override
+        public void createControlPoints(float[] points, int count, float[] control) {
+            updateControlPoints(points, 0, count, control);
         }
 
+        /**
+         * The control points between two points only depend on those two, so a changed point
+         * also changes the second control point of the one before it.
+         */
         @Override
-        public float[][] createControlPoints(float[][] points) {
-            float[][] control = new float[points.length][4];
+        protected int getAppendReach() {
+            return 1;
+        }
 
+        @Override
+        protected void updateControlPoints(float[] points, int from, int count,
+                                           float[] control) {
             //cover edge cases where control points are same as actual points
             //these points aren't actually touched by this class, but here for
             //the sake of completeness
-            control[0][0] = points[0][0];
-            control[0][1] = points[0][1];
-            control[points.length - 1][2] = points[points.length - 1][0];
-            control[points.length - 1][3] = points[points.length - 1][1];
-
-            for (int i = 0; i < points.length - 1; i++) {
+            int last = count - 1;
+            if (from == 0) {
+                control[0] = points[0];
+                control[1] = points[1];
+            }
+            control[4 * last + 2] = points[2 * last];
+            control[4 * last + 3] = points[2 * last + 1];
 
-                float[] p1 = points[i];
-                float[] p2 = points[i + 1];
+            // the first control point of a point is set along with the second of the one before
+            for (int i = Math.max(0, from - 1); i < last; i++) {
 
+                float p1x = points[2 * i];
+                float p1y = points[2 * i + 1];
+                float p2x = points[2 * i + 2];
+                float p2y = points[2 * i + 3];
 
-                int offset = (int) (p2[0] - p1[0]);
-                int[] c1 = {(int) p1[0] + offset / 2, (int) p1[1]};
-                int[] c2 = {(int) p2[0] - offset / 2, (int) p2[1]};
+                int offset = (int) (p2x - p1x);
 
-                control[i][2] = c1[0];
-                control[i][3] = c1[1];
+                control[4 * i + 2] = (int) p1x + offset / 2;
+                control[4 * i + 3] = (int) p1y;
 
-                control[i + 1][0] = c2[0];
-                control[i + 1][1] = c2[1];
+                control[4 * i + 4] = (int) p2x - offset / 2;
+                control[4 * i + 5] = (int) p2y;
 
             }
-
-            return control;
         }
 
     }
 
     public static class SmoothedFunctionPath extends PathGenerator {
+        /**
+         * Default fewest points whose control points are computed in parallel.
+         */
+        public static final int PARALLEL_THRESHOLD = 1 << 16;
+
         private final double scale;
+        private int parallelThreshold = PARALLEL_THRESHOLD;
 
         public SmoothedFunctionPath(double severity) {
             scale = severity;
         }
 
-        @Override
-        public Path createPathFromPoints(float[][] points, float[][] controlPoints) {
-            Path path = new Path();
-
-            for (int i = 0; i < points.length; i++) {
-                float[] point = points[i];
-                if (path.isEmpty()) {
-                    path.moveTo(point[0], point[1]);
-                } else {
-                    path.cubicTo(
-                            controlPoints[i - 1][2],
-                            controlPoints[i - 1][3],
-                            controlPoints[i][0],
-                            controlPoints[i][1],
-                            point[0],
-                            point[1]);
-
-                }
-            }
+        /**
+         * Set the fewest points whose control points are computed in chunks on the shared
+         * fork/join pool; see {@link PlotPool}. Every point's control points only depend on
+         * it and its neighbors, so the result is the same either way.
+         */
+        public SmoothedFunctionPath setParallelThreshold(int points) {
+            parallelThreshold = points;
+            return this;
+        }
 
-            return path;
+        @Override
+        public boolean createPathFromPoints(float[] points, int count, float[] controlPoints,
+                                            PathSink path) {
+            addCubics(points, count, controlPoints, path);
+            return true;
         }
 
         /**
          * Calculates bezier control points that should surround each given point.
+         * <p/>
+         * The control points of a point o lie on a line through o, and each is the projection
+         * of the vector from o to a neighbor onto that line, scaled by the severity. For a line
+         * along a direction d, the projection of v is {@code (d·v / d·d) d}, so only the
+         * direction matters and neither angles nor unit vectors are needed: the line is
+         * perpendicular to {@code v1 + r} in general, along {@code r} for collinear points and
+         * horizontal for a vertical line, where {@code v1}, {@code v2} point to the neighbors
+         * and {@code r} is {@code v2 - v1} scaled by {@code |v1| / (|v1| + |v2|)}.
          *
-         * @param points
-         * @return array of bezier control points where idx 0, 1, 2, and 3 correspond with
-         * control point 1 (cp1) x, cp1 y, cp2 x, and cp2 y.
+         * @return nothing; idx {@code 4i} to {@code 4i + 3} of {@code control} are control
+         * point 1 (cp1) x, cp1 y, cp2 x and cp2 y of point i.
          */
         @Override
-        public float[][] createControlPoints(float[][] points) {
-            float[][] control = new float[points.length][4];
-
-            //cover edge cases where control points are same as actual points
-            float[] start = getHalfControlPoint(points[0], points[1]);
-            control[0][0] = points[0][0];
-            control[0][1] = points[0][1];
-            control[0][2] = start[0];
-            control[0][3] = start[1];
-
-            int lastIdx = points.length - 1;
-            float[] end = getHalfControlPoint(points[lastIdx], points[lastIdx - 1]);
-            control[lastIdx][0] = end[0];
-            control[lastIdx][1] = end[1];
-            control[lastIdx][2] = points[lastIdx][0];
-            control[lastIdx][3] = points[lastIdx][1];
-
-            for (int i = 1; i < lastIdx; i++) {
-                float[] p2 = points[i];
-                float[] p1 = points[i - 1];
-                float[] p3 = points[i + 1];
-
-                // length of vectors from point 2 to neighbor points
-                float[] v1 = new float[]{p1[0] - p2[0], p1[1] - p2[1]};
-                float[] v2 = new float[]{p3[0] - p2[0], p3[1] - p2[1]};
-                double m1 = Math.sqrt(Math.pow(v1[0], 2) + Math.pow(v1[1], 2));
-                double m2 = Math.sqrt(Math.pow(v2[0], 2) + Math.pow(v2[1], 2));
-                double ratio = m1 / (m1 + m2);
-
-                float crossProduct = v1[0] * v2[1] - v2[0] * v1[1];
-
-                // a scaled vector between tips of v2 and v2
-                double[] r = new double[]{(v2[0] - v1[0]) * ratio, (v2[1] - v1[1]) * ratio};
-
-                double theta;
-                if ((m1 + m2) == 0) {
-                    // all 3 points are the same
-                    control[i][0] = points[i][0];
-                    control[i][1] = points[i][1];
-                    control[i][2] = points[i][0];
-                    control[i][3] = points[i][1];
-                } else {
-                    if (crossProduct == 0) {
-                        //vectors are parallel (3 points lie on a straight line)
-                        if (r[0] != 0) {
-                            theta = Math.atan(r[1] / r[0]);
-                        } else {
-                            // points lie on a vertical line
-                            theta = r[1] > 0 ? Math.PI : -Math.PI;
-                        }
-
-                    } else {
-                        double qx = v1[0] + r[0];
-                        double qy = v1[1] + r[1];
-                        // rotate vector 90 deg
-                        double qtx = -qy;
-                        double qty = qx;
-                        // qtx==0 only occurs when qty==0, which would result in theta== NaN, but
-                        // this possibility only occurs when points lie on the same line, (i.e.
-                        // cross product == 0), a case covered above.
-                        theta = Math.atan(qty / qtx);
-                    }
-
-
-                    double[] c1 = getControlPoints(theta, scale, p2, p1, p3);
-
-                    control[i][0] = (float) c1[0];
-                    control[i][1] = (float) c1[1];
-                    control[i][2] = (float) c1[2];
-                    control[i][3] = (float) c1[3];
-                }
-
-
-            }
-
-            return control;
+        public void createControlPoints(float[] points, int count, float[] control) {
+            updateControlPoints(points, 0, count, control);
         }
 
         /**
-         * Makes a control point for the termination point of a path. Without a control
-         * control point on the termination point of a curve, the termination segment
-         * curve is dominated by the second-to-last point's control points, leading to
-         * a massive arch in some cases.
-         *
-         * @param begin start of control point vector
-         * @param end   end of control point vector
-         * @return
+         * The control points of a point only depend on it and its neighbors, and on whether
+         * it is the last, so a changed point also changes the ones of the point before it.
          */
-        private float[] getHalfControlPoint(float[] begin, float[] end) {
-
-            float vy = end[1] - begin[1];
-            float vx = end[0] - begin[0];
+        @Override
+        protected int getAppendReach() {
+            return 1;
+        }
 
-            float[] result = new float[2];
-            result[0] = begin[0] + vx * (float) scale / 2;
-            result[1] = begin[1] + vy * (float) scale / 2;
-            return result;
+        @Override
+        protected void updateControlPoints(final float[] points, int from, int count,
+                                           final float[] control) {
+            final float half = (float) scale / 2;
+            int lastIdx = count - 1;
 
+            //cover edge cases where control points are same as actual points
+            if (from == 0) {
+                control[0] = points[0];
+                control[1] = points[1];
+                control[2] = points[0] + (points[2] - points[0]) * half;
+                control[3] = points[1] + (points[3] - points[1]) * half;
+            }
 
+            int l = 2 * lastIdx;
+            control[4 * lastIdx] = points[l] + (points[l - 2] - points[l]) * half;
+            control[4 * lastIdx + 1] = points[l + 1] + (points[l - 1] - points[l + 1]) * half;
+            control[4 * lastIdx + 2] = points[l];
+            control[4 * lastIdx + 3] = points[l + 1];
+
+            final int first = Math.max(1, from);
+            PlotPool.forRange(lastIdx - first, parallelThreshold, new PlotPool.RangeTask() {
+                @Override
+                public void run(int begin, int end) {
+                    for (int i = first + begin; i < first + end; i++) {
+                        setControlPoints(points, i, control);
+                    }
+                }
+            });
         }
 
+        private void setControlPoints(float[] points, int i, float[] control) {
+            final float ox = points[2 * i];
+            final float oy = points[2 * i + 1];
+            // vectors from the point to its neighbors
+            final float v1x = points[2 * i - 2] - ox;
+            final float v1y = points[2 * i - 1] - oy;
+            final float v2x = points[2 * i + 2] - ox;
+            final float v2y = points[2 * i + 3] - oy;
+            final double m1 = Math.sqrt(v1x * v1x + v1y * v1y);
+            final double m2 = Math.sqrt(v2x * v2x + v2y * v2y);
+
+            if ((m1 + m2) == 0) {
+                // all 3 points are the same
+                control[4 * i] = ox;
+                control[4 * i + 1] = oy;
+                control[4 * i + 2] = ox;
+                control[4 * i + 3] = oy;
+                return;
+            }
 
-        /**
-         * Get coordinates tip of a vector representing component of the vector between
-         * points o and point p that lies along an axis rotated by θ
-         *
-         * @param theta angle of axis offset from normal x axis
-         * @param o     origin of vector, x = o[0], y= o[1]
-         * @param p1    coordinate of tip of point 1
-         * @param p3    coordinate of tip of point 3
-         * @return
-         */
-        private double[] getControlPoints(double theta, double scale, float[] o, float[] p1, float[] p3) {
-            double[] result = new double[4];
-            //c1x =   S・(cos(θ)・vx + sin(θ)・vy )・cos(-θ)
-            //c1y = - S・(cos(θ)・vx + sin(θ)・vy )・sin(-θ)
-            //[where vx = px-ox and vy = py-oy]
-            double cosTheta = Math.cos(theta);
-            double sinTheta = Math.sin(theta);
-            double cosThetaN = Math.cos(-theta);
-            double sinThetaN = Math.sin(-theta);
-
-            // control 1
-            float vx = p1[0] - o[0];
-            float vy = p1[1] - o[1];
-            // magnitude of control point 1 on theta i axis
-            double vxp1 = scale * cosTheta * vx;
-            double commonTerm = vxp1 + scale * sinTheta * vy;
-            result[0] = commonTerm * cosThetaN;
-            result[1] = -commonTerm * sinThetaN;
-
-            // control 2
-            vx = p3[0] - o[0];
-            vy = p3[1] - o[1];
-            // magnitude of control point 2 on theta i axis
-            double vxp2 = scale * cosTheta * vx;
-            commonTerm = vxp2 + scale * sinTheta * vy;
-            result[2] = commonTerm * cosThetaN;
-            result[3] = -commonTerm * sinThetaN;
-
-            /*
-            //normalize control points to the same length
-            double c1 = Math.sqrt(result[0]*result[0] + result[1]*result[1]);
-            double c2 = Math.sqrt(result[2]*result[2] + result[3]*result[3]);
-            double ratio = Math.abs(c1) / Math.abs(c2);
-            if (ratio > 1) {
-                result[0] = result[0] / ratio;
-                result[1] = result[1] / ratio;
+            final double ratio = m1 / (m1 + m2);
+            final double rx = (v2x - v1x) * ratio;
+            final double ry = (v2y - v1y) * ratio;
+            final float crossProduct = v1x * v2y - v2x * v1y;
+
+            double dx;
+            double dy;
+            if (crossProduct != 0) {
+                // perpendicular to the vector from the point to the tip of r laid on v1
+                dx = -(v1y + ry);
+                dy = v1x + rx;
+            } else if (rx != 0) {
+                //vectors are parallel (3 points lie on a straight line)
+                dx = rx;
+                dy = ry;
             } else {
-                result[2] = result[2] * ratio;
-                result[3] = result[3] * ratio;
+                // points lie on a vertical line
+                dx = 1;
+                dy = 0;
             }
-            */
-
-            // translate vector back to o coordinate space
-            result[0] = result[0] + o[0];
-            result[1] = result[1] + o[1];
-            result[2] = result[2] + o[0];
-            result[3] = result[3] + o[1];
-            return result;
+
+            final double k = scale / (dx * dx + dy * dy);
+            final double p1 = (dx * v1x + dy * v1y) * k;
+            final double p3 = (dx * v2x + dy * v2y) * k;
+            control[4 * i] = (float) (p1 * dx + ox);
+            control[4 * i + 1] = (float) (p1 * dy + oy);
+            control[4 * i + 2] = (float) (p3 * dx + ox);
+            control[4 * i + 3] = (float) (p3 * dy + oy);
         }
 
     }
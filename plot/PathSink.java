@@ -0,0 +1,28 @@
+package com.waterbear.loglibrary.plot;
+
+/**
+ * Receives the move, line and cubic commands a {@link PathGenerator} builds a path from,
+ * so the curve math does not depend on where the path ends up: an Android
+ * {@link android.graphics.Path}, an SVG path string or a {@link PathCommandBuffer} to keep,
+ * replay or draw elsewhere.
+ */
+public interface PathSink {
+
+    void moveTo(float x, float y);
+
+    void lineTo(float x, float y);
+
+    void cubicTo(float x1, float y1, float x2, float y2, float x3, float y3);
+
+    /**
+     * Drop all commands, keeping whatever storage can be reused for the next path.
+     */
+    void rewind();
+
+    /**
+     * Makes the sinks a generator keeps its paths in.
+     */
+    interface Factory {
+        PathSink create();
+    }
+}
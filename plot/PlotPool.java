@@ -0,0 +1,112 @@
+package com.waterbear.loglibrary.plot;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Shared fork/join pool for spreading independent plotting work, such as one task per series,
+ * across cores. Work below {@link #PARALLEL_THRESHOLD} points runs on the calling thread,
+ * where the cost of handing it off would outweigh the gain. Every task writes only its own
+ * result slot, so the output does not depend on scheduling.
+ */
+final class PlotPool {
+
+    /**
+     * Fewest points worth processing in parallel.
+     */
+    static final int PARALLEL_THRESHOLD = 1 << 14;
+
+    private static ForkJoinPool pool;
+
+    interface IndexedTask {
+        void run(int index);
+    }
+
+    interface RangeTask {
+        /**
+         * Process the items {@code from <= i < to}.
+         */
+        void run(int from, int to);
+    }
+
+    private PlotPool() {
+    }
+
+    static synchronized ForkJoinPool get() {
+        if (pool == null) {
+            pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        }
+        return pool;
+    }
+
+    /**
+     * Run {@code task} for every index {@code 0 <= i < count} and wait for all of them.
+     *
+     * @param points total number of points the tasks process, to decide whether to fork
+     */
+    static void forEach(int count, long points, final IndexedTask task) {
+        if (count < 2 || points < PARALLEL_THRESHOLD
+                || Runtime.getRuntime().availableProcessors() < 2) {
+            for (int i = 0; i < count; i++) {
+                task.run(i);
+            }
+            return;
+        }
+        final List<RecursiveAction> actions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final int index = i;
+            actions.add(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    task.run(index);
+                }
+            });
+        }
+        invoke(actions);
+    }
+
+    /**
+     * Run {@code task} over the items {@code 0 <= i < count}, split into a few chunks per
+     * core if there are at least {@code threshold} items, and wait for all of them.
+     */
+    static void forRange(int count, int threshold, final RangeTask task) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        if (count < threshold || count < 2 || cores < 2) {
+            task.run(0, count);
+            return;
+        }
+        int chunks = Math.min(count, 4 * cores);
+        final List<RecursiveAction> actions = new ArrayList<>(chunks);
+        for (int i = 0; i < chunks; i++) {
+            final int from = (int) ((long) count * i / chunks);
+            final int to = (int) ((long) count * (i + 1) / chunks);
+            actions.add(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    task.run(from, to);
+                }
+            });
+        }
+        invoke(actions);
+    }
+
+    /**
+     * Run the actions in the pool; from inside it, such as per chunk work within per series
+     * work, they are forked from the current task rather than submitted anew.
+     */
+    private static void invoke(final List<RecursiveAction> actions) {
+        if (ForkJoinTask.inForkJoinPool()) {
+            ForkJoinTask.invokeAll(actions);
+            return;
+        }
+        get().invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(actions);
+            }
+        });
+    }
+}
@@ -1,5 +1,6 @@
 package com.waterbear.loglibrary.plot;
 
+import com.google.visualization.datasource.datatable.value.DateTimeValue;
 import com.google.visualization.datasource.datatable.value.DateValue;
 import com.google.visualization.datasource.datatable.value.NumberValue;
 import com.google.visualization.datasource.datatable.value.Value;
@@ -16,6 +17,11 @@ public abstract class Plotter<D extends Value, R extends Value> implements Chart
     private final Domain<D,R> domain;
     private final List<GraphTemplate> graphs = new ArrayList<>();
 
+    /**
+     * Narrowest viewport, in domain coordinates: a couple of days or hours.
+     */
+    static final double MIN_VIEWPORT_WIDTH = 2;
+
     public Plotter(AxisAdapter<D> domainAxis, AxisAdapter<R> rangeAxis, Domain<D, R> domain) {
         this.domainAxis = domainAxis;
         this.rangeAxis = rangeAxis;
@@ -23,8 +29,76 @@ public abstract class Plotter<D extends Value, R extends Value> implements Chart
     }
 
     public void onBoundsChanged(int w, int h) {
-        domainAxis.setBounds(0, w);
-        rangeAxis.setBounds(0, h);
+        AxisAdapter.beginBoundsUpdate()
+                .setBounds(domainAxis, 0, w)
+                .setBounds(rangeAxis, 0, h)
+                .commit();
+    }
+
+    /**
+     * Show only the domain coordinates {@code low..high}, e.g. epoch days on a date axis. The
+     * viewport is kept within the domain limits and no narrower than
+     * {@link #MIN_VIEWPORT_WIDTH}; graph templates only project and draw the points inside it.
+     */
+    public void setViewport(double low, double high) {
+        double limitLow = domainAxis.getLimitLow();
+        double limitHigh = domainAxis.getLimitHigh();
+        double width = Math.min(Math.max(high - low, MIN_VIEWPORT_WIDTH), limitHigh - limitLow);
+        double from = Math.max(limitLow, Math.min(low, limitHigh - width));
+        AxisAdapter.beginBoundsUpdate()
+                .setVisibleRange(domainAxis, from, from + width)
+                .commit();
+    }
+
+    /**
+     * Show the whole domain again.
+     */
+    public void resetViewport() {
+        setViewport(domainAxis.getLimitLow(), domainAxis.getLimitHigh());
+    }
+
+    /**
+     * Zoom the viewport, keeping the domain coordinate under {@code focus} in place.
+     *
+     * @param scale factor to magnify by, e.g. 2 to show half as much
+     * @param focus plot position to zoom around
+     */
+    public void zoom(float scale, float focus) {
+        double at = domainAxis.getPrimitiveForPosition(focus);
+        double low = domainAxis.getVisibleLow();
+        double high = domainAxis.getVisibleHigh();
+        setViewport(at - (at - low) / scale, at + (high - at) / scale);
+    }
+
+    /**
+     * Move the viewport by a distance in plot pixels; positive distances show later data.
+     */
+    public void pan(float distance) {
+        double delta = domainAxis.getPrimitiveForPosition(distance)
+                - domainAxis.getPrimitiveForPosition(0);
+        setViewport(domainAxis.getVisibleLow() + delta, domainAxis.getVisibleHigh() + delta);
+    }
+
+    public double getViewportLow() {
+        return domainAxis.getVisibleLow();
+    }
+
+    public double getViewportHigh() {
+        return domainAxis.getVisibleHigh();
+    }
+
+    /**
+     * @return labeled ticks of the domain axis, cached until its bounds change
+     */
+    public AxisAdapter.Ticks getDomainTicks() {
+        return domainAxis.getTicks();
+    }
+
+    /**
+     * @return labeled ticks of the range axis, cached until its bounds change
+     */
+    public AxisAdapter.Ticks getRangeTicks() {
+        return rangeAxis.getTicks();
     }
 
     public float[] getCoordinates(D x, R y) {
@@ -34,6 +108,19 @@ public abstract class Plotter<D extends Value, R extends Value> implements Chart
     }
 
 
+    /**
+     * Listen for changes to the bounds or visible range of either axis.
+     */
+    public void registerAxisChangedListener(AxisAdapter.AxisChangedListener listener) {
+        domainAxis.registerAxisChangedListener(listener);
+        rangeAxis.registerAxisChangedListener(listener);
+    }
+
+    public void unregisterAxisChangedListener(AxisAdapter.AxisChangedListener listener) {
+        domainAxis.unregisterAxisChangedListener(listener);
+        rangeAxis.unregisterAxisChangedListener(listener);
+    }
+
     public void addGraphTemplate(GraphTemplate g) {
         g.setSeries(domain, domainAxis, rangeAxis);
         graphs.add(g);
@@ -51,6 +138,14 @@ public abstract class Plotter<D extends Value, R extends Value> implements Chart
         }
 
     }
+
+    public static class HourPlotter extends Plotter<DateTimeValue, NumberValue> {
+
+        public HourPlotter(AxisAdapter<DateTimeValue> domainAxis, AxisAdapter<NumberValue> rangeAxis, Domain<DateTimeValue, NumberValue> domain) {
+            super(domainAxis, rangeAxis, domain);
+        }
+
+    }
 }
 
 
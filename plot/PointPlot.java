@@ -4,74 +4,93 @@ import android.graphics.Canvas;
 import android.graphics.Paint;
 import android.graphics.Path;
 
-import com.google.common.collect.Lists;
-
-import java.util.List;
-
 public class PointPlot implements Plottable {
 
     private final CoordinateSeries series;
     private final int pointRadius;
     private final Paint pointPaint;
     private final Paint pathPaint;
-    private final PathGenerator pathGenerator;
-    private final String lineType;
-    private List<float[]> controlPoints;
+    private final Path path;
+    private final float[] controlPoints;
+    private final int controlPointsSize;
 
     public PointPlot(CoordinateSeries series, int pointRadius, Paint pointPaint, Paint pathPaint, String curveType) {
+        this(series, createPathGenerator(curveType), pointRadius, pointPaint, pathPaint);
+    }
+
+    /**
+     * Plot a series with a generator kept from the previous plot of it, so its buffers are
+     * reused. The generator's results are captured here; the next plot made with it may
+     * generate while this one is still being drawn.
+     */
+    public PointPlot(CoordinateSeries series, PathGenerator pathGenerator, int pointRadius, Paint pointPaint, Paint pathPaint) {
+        this(series, pathGenerator, 0, pointRadius, pointPaint, pathPaint);
+    }
+
+    /**
+     * @param unchanged number of leading points of {@code series} that are the same as in the
+     *                  series last plotted with the generator, whose control points it may
+     *                  reuse; see {@link PathGenerator#append}
+     */
+    public PointPlot(CoordinateSeries series, PathGenerator pathGenerator, int unchanged, int pointRadius, Paint pointPaint, Paint pathPaint) {
         this.pointRadius = pointRadius;
         this.pointPaint = pointPaint;
         this.series = series;
         this.pathPaint = pathPaint;
-        this.lineType = curveType;
-        this.pathGenerator = createPathGenerator(series);
+        pathGenerator.append(series.getCoordinates(), series.size(), unchanged);
+        this.path = AndroidPathSink.toPath(pathGenerator.getPathSink());
+        this.controlPoints = pathGenerator.getControlPoints();
+        this.controlPointsSize = pathGenerator.getControlPointsSize();
 
     }
 
     @Override
     public void plot(Canvas canvas) {
-        Path p = pathGenerator.getPath();
-        if (p != null) {
-            canvas.drawPath(p, pathPaint);
+        if (path != null) {
+            canvas.drawPath(path, pathPaint);
 
-            List<float[]> control = getControlPoints();
-            for (float[] point : control) {
-                //canvas.drawCircle(point[0], point[1], pointRadius / 2, pointPaint);
+            for (int i = 0; i < controlPointsSize; i += 2) {
+                //canvas.drawCircle(controlPoints[i], controlPoints[i + 1], pointRadius / 2, pointPaint);
             }
         }
 
-        for (float[] point : series.getCoordinates()) {
-            canvas.drawCircle(point[0], point[1], pointRadius, pointPaint);
+        float[] points = series.getCoordinates();
+        for (int i = 0, n = 2 * series.size(); i < n; i += 2) {
+            canvas.drawCircle(points[i], points[i + 1], pointRadius, pointPaint);
         }
     }
 
-    public List<float[]> getControlPoints() {
-        if (controlPoints == null) {
-            float[][] controls = pathGenerator.getControlPoints();
-            controlPoints = Lists.newArrayList();
-            for (float[] pair : controls) {
-                controlPoints.add(new float[]{pair[0], pair[1]});
-                controlPoints.add(new float[]{pair[2], pair[3]});
-            }
-        }
-
+    /**
+     * @return control points as interleaved x, y pairs, two per point; only the first
+     * {@link #getControlPointsSize()} entries are valid.
+     */
+    public float[] getControlPoints() {
         return controlPoints;
     }
 
-    public PathGenerator createPathGenerator(CoordinateSeries data) {
-        float[][] series = data.getCoordinates();
+    public int getControlPointsSize() {
+        return controlPointsSize;
+    }
+
+    /**
+     * @return generator for a curve type that builds its paths straight into Android paths
+     */
+    public static PathGenerator createPathGenerator(String lineType) {
+        PathGenerator generator;
         switch (lineType) {
             case CurveType.NONE:
-                return new PathGenerator.LinePath().generate(series);
+                generator = new PathGenerator.LinePath();
+                break;
             case CurveType.SMOOTHED_STEP:
-                return new PathGenerator.SmoothedStepPath().generate(series);
+                generator = new PathGenerator.SmoothedStepPath();
+                break;
             case CurveType.SMOOTHED_FUNCTION:
-                return new PathGenerator.SmoothedFunctionPath(0.30).generate(series);
+                generator = new PathGenerator.SmoothedFunctionPath(0.30);
+                break;
             default:
-                return new PathGenerator.NoPath();
+                generator = new PathGenerator.NoPath();
         }
-
-
+        return generator.setSinkFactory(AndroidPathSink.FACTORY);
     }
 
     public static interface CurveType {
@@ -1,5 +1,8 @@
 package com.waterbear.loglibrary.plot;
 
+import java.util.Arrays;
+import java.util.Set;
+
 /**
  * Returns plottable points.
  *
@@ -11,55 +14,257 @@ public class PointTemplate implements
 
     private final DisplayOptions options;
     private volatile Plottable[] series = new Plottable[0];
-    private TableSeriesData tableSeriesData;
+    private Domain table;
+    private ColumnarSeriesData tableSeriesData;
 
     private AxisAdapter domainAxis;
     private AxisAdapter rangeAxis;
+    private float[] domainPositions;
+    private float[][] rangePositions;
+    private int visibleFrom;
+    private int visibleTo;
+    private SwapBuffer[] coordinateBuffers = new SwapBuffer[0];
+    private SwapBuffer[] decimatedBuffers = new SwapBuffer[0];
+    private Decimator decimator = new Decimator.LargestTriangleThreeBuckets();
+    private PathGenerator[] pathGenerators = new PathGenerator[0];
+    private boolean[] decimated = new boolean[0];
+    /**
+     * Visible ranges and plot lengths of both axes when the plottables were last rebuilt.
+     */
+    private double[] projectedAxes;
 
     public PointTemplate(DisplayOptions options) {
         this.options = options;
     }
 
+    /**
+     * Choose how series with more points than the plot is wide are thinned out before paths
+     * are generated, or pass null to draw every point. Takes effect on the next recompute.
+     */
+    public synchronized void setDecimator(Decimator decimator) {
+        this.decimator = decimator;
+    }
+
     @Override
     public Plottable[] getPlottables() {
         if (tableSeriesData == null) throw new IllegalStateException("set series first");
         return series;
     }
 
+    /**
+     * Plot a domain's series. Setting the same domain again after it was refreshed, with the
+     * same axes, only recomputes the control points of the points that changed when the
+     * series grew at its end; see {@link PathGenerator#append}.
+     */
     @Override
     public synchronized void setSeries(Domain table, AxisAdapter domain, AxisAdapter range) {
+        ColumnarSeriesData previous = tableSeriesData;
+        int previousFrom = visibleFrom;
+        int previousTo = visibleTo;
+        boolean sameProjection = previous != null && table == this.table
+                && domain == domainAxis && range == rangeAxis
+                && Arrays.equals(projectedAxes, axisState());
         if (this.tableSeriesData != null) {
             domainAxis.unregisterAxisChangedListener(this);
             rangeAxis.unregisterAxisChangedListener(this);
             //throw new UnsupportedOperationException("series and listeners set already");
         }
 
+        this.table = table;
         tableSeriesData = table.getSeries();
         domainAxis = domain;
         rangeAxis = range;
-        reset();
+        updateVisibleRows();
+        projectDomain();
+        reset(true, sameProjection && visibleFrom == previousFrom
+                ? unchangedPoints(previous, previousTo) : null);
         domainAxis.registerAxisChangedListener(this);
         rangeAxis.registerAxisChangedListener(this);
 
     }
 
-    private void reset() {
-        CoordinateSeries[] coordinateSeriesList = CoordinateSeries.fromTableSeriesData(tableSeriesData, domainAxis, rangeAxis);
-        series = getPlottables(coordinateSeriesList);
+    /**
+     * Find the rows inside the domain axis' visible range, plus the nearest row on either side
+     * so curves run on past the edges, by binary search over the sorted arguments.
+     *
+     * @return true if the rows changed
+     */
+    private boolean updateVisibleRows() {
+        int from = Math.max(0, tableSeriesData.lowerBound(domainAxis.getVisibleLow()) - 1);
+        int to = Math.min(tableSeriesData.size(),
+                tableSeriesData.upperBound(domainAxis.getVisibleHigh()) + 1);
+        boolean changed = from != visibleFrom || to != visibleTo;
+        visibleFrom = from;
+        visibleTo = to;
+        return changed;
+    }
+
+    private double[] axisState() {
+        return new double[]{
+                domainAxis.getVisibleLow(), domainAxis.getVisibleHigh(),
+                domainAxis.getPlotLength(),
+                rangeAxis.getVisibleLow(), rangeAxis.getVisibleHigh(),
+                rangeAxis.getPlotLength()};
+    }
+
+    /**
+     * Count, for every series, the visible points that are the same as in the series last
+     * plotted, i.e. that come from the leading visible rows which did not change.
+     *
+     * @return points per series, or null if the series did not just grow at its end
+     */
+    private int[] unchangedPoints(ColumnarSeriesData previous, int previousTo) {
+        int seriesCount = tableSeriesData.getSeriesCount();
+        if (previous.getSeriesCount() != seriesCount
+                || tableSeriesData.size() < previous.size()) {
+            return null;
+        }
+        int end = Math.min(previousTo, visibleTo);
+        int row = visibleFrom;
+        while (row < end && isSameRow(previous, row)) {
+            row++;
+        }
+        int[] points = new int[seriesCount];
+        for (int s = 0; s < seriesCount; s++) {
+            for (int r = visibleFrom; r < row; r++) {
+                if (!tableSeriesData.isNull(s, r)) points[s]++;
+            }
+        }
+        return points;
+    }
+
+    private boolean isSameRow(ColumnarSeriesData previous, int row) {
+        if (Double.compare(previous.getArgument(row), tableSeriesData.getArgument(row)) != 0) {
+            return false;
+        }
+        for (int s = 0; s < tableSeriesData.getSeriesCount(); s++) {
+            boolean isNull = tableSeriesData.isNull(s, row);
+            if (previous.isNull(s, row) != isNull || !isNull && Double.compare(
+                    previous.getValue(s, row), tableSeriesData.getValue(s, row)) != 0) {
+                return false;
+            }
+        }
+        return true;
     }
 
+    private void projectDomain() {
+        int count = visibleTo - visibleFrom;
+        if (domainPositions == null || domainPositions.length < count) {
+            domainPositions = new float[count];
+        }
+        domainAxis.project(tableSeriesData.getArgumentColumn(), visibleFrom, count,
+                domainPositions, 0, 1);
+    }
+
+    /**
+     * Project the visible values of a series. Series without any are skipped, since there is
+     * nothing to place and their range axis may have no limits to project with.
+     */
+    private void projectRange(int series) {
+        if (!tableSeriesData.hasValues(series, visibleFrom, visibleTo)) return;
+        int count = visibleTo - visibleFrom;
+        if (rangePositions[series].length < count) {
+            rangePositions[series] = new float[count];
+        }
+        rangeAxis.project(tableSeriesData.getValueColumn(series), visibleFrom, count,
+                rangePositions[series], 0, 1);
+    }
+
+    /**
+     * Rebuild the plottables of every series from the projected arguments. Each series is
+     * projected, paired, decimated and turned into a path independently of the others, in
+     * parallel for large enough tables; see {@link PlotPool}.
+     *
+     * @param projectValues true if the values need to be projected again first
+     * @param unchanged     leading points per series that are the same as last time, or null
+     */
+    private void reset(final boolean projectValues, final int[] unchanged) {
+        int seriesCount = tableSeriesData.getSeriesCount();
+        if (coordinateBuffers.length != seriesCount) {
+            coordinateBuffers = new SwapBuffer[seriesCount];
+            decimatedBuffers = new SwapBuffer[seriesCount];
+            pathGenerators = new PathGenerator[seriesCount];
+            decimated = new boolean[seriesCount];
+            rangePositions = new float[seriesCount][0];
+            for (int i = 0; i < seriesCount; i++) {
+                coordinateBuffers[i] = new SwapBuffer();
+                decimatedBuffers[i] = new SwapBuffer();
+                pathGenerators[i] = PointPlot.createPathGenerator(PointPlot.CurveType.SMOOTHED_FUNCTION);
+            }
+        }
+        final int width = domainAxis.getPlotLength();
+        final CoordinateSeries[] coordinateSeriesList = new CoordinateSeries[seriesCount];
+        final int[] reused = new int[seriesCount];
+        PlotPool.forEach(seriesCount, (long) (visibleTo - visibleFrom) * seriesCount,
+                new PlotPool.IndexedTask() {
+                    @Override
+                    public void run(int i) {
+                        if (projectValues) projectRange(i);
+                        CoordinateSeries s = CoordinateSeries.fromPositions(tableSeriesData, i,
+                                visibleFrom, visibleTo, domainPositions, rangePositions[i],
+                                coordinateBuffers[i]);
+                        boolean thinned = decimator != null
+                                && s.size() > decimator.getMaxPoints(width);
+                        // decimated points shift with every point added, so nothing is reused
+                        if (unchanged != null && !thinned && !decimated[i]) {
+                            reused[i] = unchanged[i];
+                        }
+                        decimated[i] = thinned;
+                        coordinateSeriesList[i] = thinned ? decimate(i, s, width) : s;
+                    }
+                });
+        projectedAxes = axisState();
+        series = getPlottables(coordinateSeriesList, reused);
+    }
+
+    private CoordinateSeries decimate(int series, CoordinateSeries s, int width) {
+        float[] dst = decimatedBuffers[series].acquire(2 * s.size());
+        int count = decimator.decimate(s.getCoordinates(), s.size(), width, dst);
+        decimatedBuffers[series].publish(2 * count);
+        return CoordinateSeries.wrap(dst, count);
+    }
+
+    /**
+     * Generate the paths of every series, in parallel for large enough tables. Plottables
+     * come out in series order either way.
+     */
     protected Plottable[] getPlottables(CoordinateSeries[] seriesList) {
-        PointPlot[] points = new PointPlot[seriesList.length];
-        for (int i = 0; i < seriesList.length; i++) {
-            points[i] = new PointPlot(seriesList[i], options.getPointRadius(), options.getPointPaint(), options.getPathPaint(), PointPlot.CurveType.SMOOTHED_FUNCTION);
+        return getPlottables(seriesList, new int[seriesList.length]);
+    }
+
+    /**
+     * @param unchanged leading points per series the path generators may reuse the control
+     *                  points of
+     */
+    private Plottable[] getPlottables(final CoordinateSeries[] seriesList,
+                                      final int[] unchanged) {
+        final PointPlot[] points = new PointPlot[seriesList.length];
+        long size = 0;
+        for (CoordinateSeries s : seriesList) {
+            size += s.size();
         }
+        PlotPool.forEach(seriesList.length, size, new PlotPool.IndexedTask() {
+            @Override
+            public void run(int i) {
+                points[i] = new PointPlot(seriesList[i], pathGenerators[i], unchanged[i], options.getPointRadius(), options.getPointPaint(), options.getPathPaint());
+            }
+        });
         return points;
     }
 
 
+    /**
+     * Re-project only the axes whose bounds changed, and the values of rows that scrolled into
+     * view, then rebuild the plottables once.
+     */
     @Override
-    public void onAxisChanged() {
-        reset();
+    public synchronized void onAxisChanged(Set<AxisAdapter> changed) {
+        boolean rowsChanged = false;
+        if (changed.contains(domainAxis)) {
+            rowsChanged = updateVisibleRows();
+            projectDomain();
+        }
+        reset(rowsChanged || changed.contains(rangeAxis), null);
     }
 
 
@@ -0,0 +1,254 @@
+package com.waterbear.loglibrary.plot;
+
+import java.util.Arrays;
+
+/**
+ * Drops the points of a polyline that deviate from it by less than a tolerance in pixels, so
+ * dense and flat stretches of a series are drawn with a few long segments instead of many
+ * short, collinear or sub-pixel ones. Works on interleaved x, y plot coordinates and always
+ * keeps the first and the last point.
+ * <p/>
+ * Instances keep their working arrays between calls, so one must not be shared by
+ * generators that run at the same time.
+ */
+public abstract class PolylineSimplifier {
+
+    protected final float tolerance;
+
+    /**
+     * @param tolerance largest deviation in pixels a dropped point may have from the result
+     */
+    protected PolylineSimplifier(float tolerance) {
+        if (tolerance < 0) throw new IllegalArgumentException("tolerance < 0");
+        this.tolerance = tolerance;
+    }
+
+    public float getTolerance() {
+        return tolerance;
+    }
+
+    /**
+     * Copy the points to keep into {@code dst}, in their original order.
+     *
+     * @param src   interleaved x, y coordinates
+     * @param count number of points in {@code src}
+     * @param dst   buffer with room for {@code 2 * count} floats
+     * @return number of points written to {@code dst}
+     */
+    public int simplify(float[] src, int count, float[] dst) {
+        if (count < 3 || tolerance == 0) {
+            System.arraycopy(src, 0, dst, 0, 2 * count);
+            return count;
+        }
+        return reduce(src, count, dst);
+    }
+
+    protected abstract int reduce(float[] src, int count, float[] dst);
+
+    /**
+     * Squared distance of point {@code p} from the segment between points {@code a} and
+     * {@code b}.
+     */
+    static double segmentDistanceSquared(float[] src, int p, int a, int b) {
+        double ax = src[2 * a];
+        double ay = src[2 * a + 1];
+        double dx = src[2 * b] - ax;
+        double dy = src[2 * b + 1] - ay;
+        double px = src[2 * p] - ax;
+        double py = src[2 * p + 1] - ay;
+        double length = dx * dx + dy * dy;
+        if (length > 0) {
+            double t = Math.max(0, Math.min(1, (px * dx + py * dy) / length));
+            px -= t * dx;
+            py -= t * dy;
+        }
+        return px * px + py * py;
+    }
+
+    /**
+     * Ramer–Douglas–Peucker: keeps the point farthest from the segment between the ends of a
+     * stretch if it is farther than the tolerance and splits the stretch there, until every
+     * dropped point is within the tolerance of the result.
+     */
+    public static class RamerDouglasPeucker extends PolylineSimplifier {
+        private boolean[] keep = new boolean[0];
+        private int[] stack = new int[0];
+
+        public RamerDouglasPeucker(float tolerance) {
+            super(tolerance);
+        }
+
+        @Override
+        protected int reduce(float[] src, int count, float[] dst) {
+            if (keep.length < count) {
+                keep = new boolean[count];
+                stack = new int[2 * count];
+            }
+            final double limit = (double) tolerance * tolerance;
+            Arrays.fill(keep, 0, count, false);
+            keep[0] = true;
+            keep[count - 1] = true;
+
+            int top = 0;
+            stack[top++] = 0;
+            stack[top++] = count - 1;
+            while (top > 0) {
+                int last = stack[--top];
+                int first = stack[--top];
+                double farthest = limit;
+                int split = -1;
+                for (int i = first + 1; i < last; i++) {
+                    double distance = segmentDistanceSquared(src, i, first, last);
+                    if (distance > farthest) {
+                        farthest = distance;
+                        split = i;
+                    }
+                }
+                if (split >= 0) {
+                    keep[split] = true;
+                    stack[top++] = first;
+                    stack[top++] = split;
+                    stack[top++] = split;
+                    stack[top++] = last;
+                }
+            }
+
+            int out = 0;
+            for (int i = 0; i < count; i++) {
+                if (keep[i]) {
+                    dst[out++] = src[2 * i];
+                    dst[out++] = src[2 * i + 1];
+                }
+            }
+            return out / 2;
+        }
+    }
+
+    /**
+     * Visvalingam–Whyatt: repeatedly drops the point whose triangle with its two neighbors
+     * has the smallest area, while that area is below half the tolerance squared, the area
+     * of a point the tolerance away from a base the tolerance long. Favors dropping small
+     * wiggles over long shallow runs, which tends to look smoother than
+     * {@link RamerDouglasPeucker}.
+     */
+    public static class VisvalingamWhyatt extends PolylineSimplifier {
+        private int[] prev = new int[0];
+        private int[] next = new int[0];
+        private double[] area = new double[0];
+        private int[] heap = new int[0];
+        private int[] heapIndex = new int[0];
+        private int heapSize;
+
+        public VisvalingamWhyatt(float tolerance) {
+            super(tolerance);
+        }
+
+        @Override
+        protected int reduce(float[] src, int count, float[] dst) {
+            if (prev.length < count) {
+                prev = new int[count];
+                next = new int[count];
+                area = new double[count];
+                heap = new int[count];
+                heapIndex = new int[count];
+            }
+            final double limit = (double) tolerance * tolerance / 2;
+
+            heapSize = 0;
+            for (int i = 0; i < count; i++) {
+                prev[i] = i - 1;
+                next[i] = i + 1;
+            }
+            for (int i = 1; i < count - 1; i++) {
+                area[i] = triangleArea(src, i - 1, i, i + 1);
+                heap[heapSize] = i;
+                heapIndex[i] = heapSize++;
+            }
+            for (int i = heapSize / 2 - 1; i >= 0; i--) {
+                siftDown(i);
+            }
+
+            while (heapSize > 0 && area[heap[0]] < limit) {
+                int point = heap[0];
+                remove(0);
+                double removed = area[point];
+                int before = prev[point];
+                int after = next[point];
+                next[before] = after;
+                prev[after] = before;
+                // a neighbor can not end up with less area than the point dropped before it,
+                // or dropping it would be judged against a smaller change than it makes
+                if (before > 0) {
+                    update(before, Math.max(removed,
+                            triangleArea(src, prev[before], before, after)));
+                }
+                if (after < count - 1) {
+                    update(after, Math.max(removed,
+                            triangleArea(src, before, after, next[after])));
+                }
+            }
+
+            int out = 0;
+            for (int i = 0; i < count; i = next[i]) {
+                dst[out++] = src[2 * i];
+                dst[out++] = src[2 * i + 1];
+            }
+            return out / 2;
+        }
+
+        private static double triangleArea(float[] src, int a, int b, int c) {
+            double ax = src[2 * a];
+            double ay = src[2 * a + 1];
+            return Math.abs((src[2 * b] - ax) * (src[2 * c + 1] - ay)
+                    - (src[2 * c] - ax) * (src[2 * b + 1] - ay)) / 2;
+        }
+
+        private void update(int point, double value) {
+            double old = area[point];
+            area[point] = value;
+            if (value < old) {
+                siftUp(heapIndex[point]);
+            } else {
+                siftDown(heapIndex[point]);
+            }
+        }
+
+        private void remove(int index) {
+            heapSize--;
+            if (index < heapSize) {
+                move(heap[heapSize], index);
+                siftDown(index);
+                siftUp(heapIndex[heap[index]]);
+            }
+        }
+
+        private void siftUp(int index) {
+            int point = heap[index];
+            while (index > 0) {
+                int parent = (index - 1) / 2;
+                if (area[heap[parent]] <= area[point]) break;
+                move(heap[parent], index);
+                index = parent;
+            }
+            move(point, index);
+        }
+
+        private void siftDown(int index) {
+            int point = heap[index];
+            while (true) {
+                int child = 2 * index + 1;
+                if (child >= heapSize) break;
+                if (child + 1 < heapSize && area[heap[child + 1]] < area[heap[child]]) child++;
+                if (area[point] <= area[heap[child]]) break;
+                move(heap[child], index);
+                index = child;
+            }
+            move(point, index);
+        }
+
+        private void move(int point, int index) {
+            heap[index] = point;
+            heapIndex[point] = index;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.waterbear.loglibrary.plot;
+
+import android.graphics.Bitmap;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Offscreen bitmap a {@link Renderer} rasterizes a chart into once and blits on every frame
+ * after, until the data version or the size it was drawn for changes. All caches share one
+ * memory budget; when a new bitmap would exceed it, the least recently drawn bitmaps of other
+ * caches are dropped, and a chart that does not fit at all is drawn directly instead.
+ * <p/>
+ * Dropped bitmaps are not recycled, since a view's display list may still draw them; they
+ * are left to the garbage collector. Meant to be used from the UI thread.
+ */
+public final class RenderCache {
+
+    private static final long DEFAULT_MAX_BYTES = Runtime.getRuntime().maxMemory() / 8;
+    private static final int BYTES_PER_PIXEL = 4;
+
+    /**
+     * Caches holding a bitmap, least recently drawn first, and the bytes each holds.
+     */
+    private static final LinkedHashMap<RenderCache, Long> holders =
+            new LinkedHashMap<>(16, 0.75f, true);
+    private static long maxBytes = DEFAULT_MAX_BYTES;
+    private static long bytes = 0;
+
+    private Bitmap bitmap;
+    private int version;
+    private int width;
+    private int height;
+
+    /**
+     * @return bitmap drawn for the data version and size, or null if it has to be drawn
+     * (again)
+     */
+    Bitmap get(int version, int width, int height) {
+        synchronized (RenderCache.class) {
+            if (bitmap == null || this.version != version
+                    || this.width != width || this.height != height) {
+                return null;
+            }
+            holders.get(this);
+            return bitmap;
+        }
+    }
+
+    /**
+     * Get an empty bitmap to draw the data version at the size into, reusing the current one
+     * if it has the same size; it is returned by {@link #get} from then on.
+     *
+     * @return bitmap to draw into, or null if one that size does not fit the budget
+     */
+    Bitmap acquire(int version, int width, int height) {
+        synchronized (RenderCache.class) {
+            if (bitmap != null && this.width == width && this.height == height) {
+                bitmap.eraseColor(0);
+            } else {
+                release();
+                long size = (long) BYTES_PER_PIXEL * width * height;
+                if (width <= 0 || height <= 0 || size > maxBytes) return null;
+                bytes += size;
+                holders.put(this, size);
+                trim();
+                bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+                this.width = width;
+                this.height = height;
+            }
+            this.version = version;
+            return bitmap;
+        }
+    }
+
+    /**
+     * Drop the bitmap, e.g. when the view leaves the window.
+     */
+    void release() {
+        synchronized (RenderCache.class) {
+            Long size = holders.remove(this);
+            if (size != null) bytes -= size;
+            bitmap = null;
+        }
+    }
+
+    /**
+     * Drop least recently drawn bitmaps until the budget is kept, never the most recent one.
+     */
+    private static void trim() {
+        Iterator<Map.Entry<RenderCache, Long>> it = holders.entrySet().iterator();
+        while (bytes > maxBytes && holders.size() > 1 && it.hasNext()) {
+            Map.Entry<RenderCache, Long> e = it.next();
+            bytes -= e.getValue();
+            e.getKey().bitmap = null;
+            it.remove();
+        }
+    }
+
+    /**
+     * Set the most memory all cached chart bitmaps may take together.
+     */
+    public static synchronized void setMemoryBudget(long maxBytes) {
+        RenderCache.maxBytes = maxBytes;
+        trim();
+    }
+
+    public static synchronized long getMemoryBudget() {
+        return maxBytes;
+    }
+
+    /**
+     * @return memory taken by cached chart bitmaps
+     */
+    public static synchronized long getSizeInBytes() {
+        return bytes;
+    }
+}
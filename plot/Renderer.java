@@ -1,9 +1,11 @@
 package com.waterbear.loglibrary.plot;
 
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Controls how chart data is rendered onto bitmaps.
@@ -12,12 +14,19 @@ import java.util.List;
  * <p/>
  * Created by Ehmer, R.G. on 3/28/15.
  */
-public class Renderer {
+public class Renderer implements AxisAdapter.AxisChangedListener {
 
     private Plotter plotter;
     private final List<GraphTemplate> plotGraphList = new ArrayList<>();
+    private final DisplayOptions options;
+    private final RenderCache cache = new RenderCache();
+    /**
+     * Bumped whenever what is drawn may have changed, so the cached bitmap is redrawn.
+     */
+    private int version;
 
     public Renderer(DisplayOptions options) {
+        this.options = options;
         PointTemplate p = new PointTemplate(options);
         plotGraphList.add(p);
 
@@ -26,16 +35,83 @@ public class Renderer {
     public void setPlotter(Plotter p) {
         if (plotter!=null) {
             plotter.removeGraphTemplates(plotGraphList);
+            plotter.unregisterAxisChangedListener(this);
         }
 
         plotter = p;
         for (GraphTemplate g: plotGraphList) {
             plotter.addGraphTemplate(g);
         }
+        plotter.registerAxisChangedListener(this);
+        invalidate();
 
     }
 
 
+    /**
+     * Detach the current plotter so nothing is rendered until the next
+     * {@link #setPlotter(Plotter)}.
+     */
+    public void clearPlotter() {
+        if (plotter != null) {
+            plotter.removeGraphTemplates(plotGraphList);
+            plotter.unregisterAxisChangedListener(this);
+            plotter = null;
+        }
+        invalidate();
+    }
+
+    /**
+     * Redraw the cached bitmap on the next {@link #renderCached}, e.g. after display options
+     * changed. New tables and axis bounds or viewport changes do this by themselves.
+     */
+    public void invalidate() {
+        version++;
+    }
+
+    @Override
+    public void onAxisChanged(Set<AxisAdapter> changed) {
+        invalidate();
+    }
+
+    /**
+     * Drop the cached bitmap, freeing its share of the memory budget.
+     */
+    public void releaseCache() {
+        cache.release();
+    }
+
+    /**
+     * Draw a flat line across the middle of the chart area while data is loading.
+     */
+    public void renderPlaceholder(Canvas c, int w, int h) {
+        c.drawLine(0, h / 2f, w, h / 2f, options.getPathPaint());
+    }
+
+    /**
+     * Draw the chart area of {@code w} by {@code h} from a cached bitmap, rasterizing it
+     * first if nothing was cached since the last change. The bitmap extends past the chart
+     * area by the point radius and half the line width, so points and lines on the edges are
+     * not clipped. Draws directly if the bitmap does not fit the {@link RenderCache} budget.
+     */
+    public void renderCached(Canvas c, int w, int h) {
+        if (plotter == null) return;
+
+        int margin = Math.max(options.getPointRadius(), (options.getLineWidth() + 1) / 2) + 1;
+        Bitmap bitmap = cache.get(version, w + 2 * margin, h + 2 * margin);
+        if (bitmap == null) {
+            bitmap = cache.acquire(version, w + 2 * margin, h + 2 * margin);
+            if (bitmap == null) {
+                renderOntoCanvas(c);
+                return;
+            }
+            Canvas offscreen = new Canvas(bitmap);
+            offscreen.translate(margin, margin);
+            renderOntoCanvas(offscreen);
+        }
+        c.drawBitmap(bitmap, -margin, -margin, null);
+    }
+
     public void renderOntoCanvas(Canvas c) {
         if (plotter == null) return;
             
@@ -0,0 +1,296 @@
+package com.waterbear.loglibrary.plot;
+
+import com.waterbear.loglibrary.plot.TimeBucketer.Resolution;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Persisted daily, weekly and monthly aggregates of each button's logs, so long-range charts
+ * read one row per bucket instead of one row per log. Every bucket keeps the number of logs,
+ * and the count, sum, min and max of their non-null quantities. Buckets are keyed in the time
+ * of the timezone each log was made in.
+ * <p/>
+ * Each (button, resolution) pair is a file {@code <buttonId>.<resolution>.rollup} in the
+ * store's directory holding fixed-width bucket records sorted by key. {@link #record} keeps
+ * them current as logs are written, rewriting just the touched record when logs arrive in
+ * time order; {@link #rebuild} recomputes a button's rollups from its raw logs.
+ */
+public class RollupStore {
+
+    /**
+     * Resolutions kept on disk; hours are served by {@link TimeIndex} instead.
+     */
+    static final Resolution[] RESOLUTIONS = {Resolution.DAY, Resolution.WEEK, Resolution.MONTH};
+
+    static final int MAGIC = 0x50554c52; // "RLUP"
+    static final int HEADER_SIZE = 8;
+    static final int RECORD_SIZE = 40;
+
+    private final File directory;
+    private final Map<String, Buckets> loaded = new HashMap<>();
+
+    public RollupStore(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Fold a newly written log into the button's rollups.
+     *
+     * @param quantity quantity, or {@link Double#NaN} for a log without one
+     */
+    public synchronized void record(int buttonId, long millis, long timezoneOffset,
+                                    double quantity) throws IOException {
+        for (Resolution resolution : RESOLUTIONS) {
+            Buckets buckets = bucketsFor(buttonId, resolution);
+            long key = resolution.bucketOf(millis + timezoneOffset);
+            int size = buckets.size;
+            int i = buckets.fold(key, quantity);
+            if (buckets.size == size || i == size) {
+                buckets.writeRecord(i);
+            } else {
+                buckets.writeAll();
+            }
+        }
+    }
+
+    /**
+     * Recompute a button's rollups at every resolution from all of its logs.
+     */
+    public synchronized void rebuild(int buttonId, LogSource source) throws IOException {
+        Buckets[] all = new Buckets[RESOLUTIONS.length];
+        TimeBucketer[] bucketers = new TimeBucketer[RESOLUTIONS.length];
+        for (int i = 0; i < RESOLUTIONS.length; i++) {
+            all[i] = new Buckets(fileFor(buttonId, RESOLUTIONS[i]));
+            bucketers[i] = new TimeBucketer(RESOLUTIONS[i]);
+        }
+        LogSource.LogCursor c = source.query(buttonId, Long.MIN_VALUE, LogSource.UNBOUNDED);
+        try {
+            while (c.moveToNext()) {
+                long millis = c.getMillis();
+                long offset = c.getTimezoneOffset();
+                double quantity = c.isQuantityNull() ? Double.NaN : c.getQuantity();
+                for (int i = 0; i < RESOLUTIONS.length; i++) {
+                    all[i].fold(bucketers[i].bucketOf(millis, offset), quantity);
+                }
+            }
+        } finally {
+            c.close();
+        }
+        for (Buckets buckets : all) {
+            buckets.writeAll();
+            loaded.put(buckets.file.getName(), buckets);
+        }
+    }
+
+    /**
+     * Merge the buckets with {@code fromBucket <= key <= toBucket} into an aggregator, one group
+     * per bucket keyed by bucket key, aggregating column 0.
+     *
+     * @return number of buckets merged
+     */
+    public synchronized int read(int buttonId, Resolution resolution, long fromBucket,
+                                 long toBucket, GroupByAggregator into) throws IOException {
+        Buckets buckets = bucketsFor(buttonId, resolution);
+        int from = buckets.lowerBound(fromBucket);
+        int merged = 0;
+        for (int i = from; i < buckets.size && buckets.keys[i] <= toBucket; i++) {
+            int g = into.addRows(buckets.keys[i], buckets.rows[i]);
+            into.merge(g, 0, buckets.counts[i], buckets.sums[i], buckets.mins[i],
+                    buckets.maxs[i]);
+            merged++;
+        }
+        return merged;
+    }
+
+    private Buckets bucketsFor(int buttonId, Resolution resolution) throws IOException {
+        File file = fileFor(buttonId, resolution);
+        Buckets buckets = loaded.get(file.getName());
+        if (buckets == null) {
+            buckets = new Buckets(file);
+            buckets.readAll();
+            loaded.put(file.getName(), buckets);
+        }
+        return buckets;
+    }
+
+    private File fileFor(int buttonId, Resolution resolution) {
+        return new File(directory,
+                buttonId + "." + resolution.name().toLowerCase(Locale.US) + ".rollup");
+    }
+
+    /**
+     * Sorted bucket records of one rollup file, mirrored in primitive arrays.
+     */
+    private static class Buckets {
+        final File file;
+        long[] keys = new long[16];
+        int[] rows = new int[16];
+        int[] counts = new int[16];
+        double[] sums = new double[16];
+        double[] mins = new double[16];
+        double[] maxs = new double[16];
+        int size = 0;
+        private final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE)
+                .order(ByteOrder.LITTLE_ENDIAN);
+
+        Buckets(File file) {
+            this.file = file;
+        }
+
+        /**
+         * @return index of the bucket the log was folded into
+         */
+        int fold(long key, double quantity) {
+            int i = lowerBound(key);
+            if (i == size || keys[i] != key) {
+                insert(i, key);
+            }
+            rows[i]++;
+            if (!Double.isNaN(quantity)) {
+                if (counts[i] == 0) {
+                    mins[i] = quantity;
+                    maxs[i] = quantity;
+                } else {
+                    mins[i] = Math.min(mins[i], quantity);
+                    maxs[i] = Math.max(maxs[i], quantity);
+                }
+                sums[i] += quantity;
+                counts[i]++;
+            }
+            return i;
+        }
+
+        int lowerBound(long key) {
+            int lo = 0;
+            int hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (keys[mid] < key) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        private void insert(int at, long key) {
+            if (size == keys.length) {
+                int length = size * 2;
+                keys = Arrays.copyOf(keys, length);
+                rows = Arrays.copyOf(rows, length);
+                counts = Arrays.copyOf(counts, length);
+                sums = Arrays.copyOf(sums, length);
+                mins = Arrays.copyOf(mins, length);
+                maxs = Arrays.copyOf(maxs, length);
+            }
+            int tail = size - at;
+            System.arraycopy(keys, at, keys, at + 1, tail);
+            System.arraycopy(rows, at, rows, at + 1, tail);
+            System.arraycopy(counts, at, counts, at + 1, tail);
+            System.arraycopy(sums, at, sums, at + 1, tail);
+            System.arraycopy(mins, at, mins, at + 1, tail);
+            System.arraycopy(maxs, at, maxs, at + 1, tail);
+            keys[at] = key;
+            rows[at] = 0;
+            counts[at] = 0;
+            sums[at] = 0;
+            size++;
+        }
+
+        void readAll() throws IOException {
+            size = 0;
+            if (!file.exists()) return;
+            RandomAccessFile raf = new RandomAccessFile(file, "r");
+            try {
+                FileChannel channel = raf.getChannel();
+                ByteBuffer all = ByteBuffer.allocate((int) channel.size())
+                        .order(ByteOrder.LITTLE_ENDIAN);
+                while (all.hasRemaining()) {
+                    if (channel.read(all) < 0) break;
+                }
+                all.flip();
+                if (all.remaining() < HEADER_SIZE || all.getInt() != MAGIC) {
+                    throw new IOException("not a rollup file: " + file);
+                }
+                all.getInt();
+                while (all.remaining() >= RECORD_SIZE) {
+                    insert(size, all.getLong());
+                    int i = size - 1;
+                    rows[i] = all.getInt();
+                    counts[i] = all.getInt();
+                    sums[i] = all.getDouble();
+                    mins[i] = all.getDouble();
+                    maxs[i] = all.getDouble();
+                }
+            } finally {
+                raf.close();
+            }
+        }
+
+        void writeRecord(int i) throws IOException {
+            RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            try {
+                FileChannel channel = raf.getChannel();
+                if (channel.size() < HEADER_SIZE) {
+                    writeHeader(channel);
+                }
+                fillRecord(i);
+                long position = HEADER_SIZE + (long) i * RECORD_SIZE;
+                while (record.hasRemaining()) {
+                    position += channel.write(record, position);
+                }
+            } finally {
+                raf.close();
+            }
+        }
+
+        void writeAll() throws IOException {
+            File tmp = new File(file.getPath() + ".tmp");
+            RandomAccessFile raf = new RandomAccessFile(tmp, "rw");
+            try {
+                FileChannel channel = raf.getChannel();
+                channel.truncate(0);
+                writeHeader(channel);
+                long position = HEADER_SIZE;
+                for (int i = 0; i < size; i++) {
+                    fillRecord(i);
+                    while (record.hasRemaining()) {
+                        position += channel.write(record, position);
+                    }
+                }
+            } finally {
+                raf.close();
+            }
+            if (!tmp.renameTo(file)) {
+                throw new IOException("could not replace " + file);
+            }
+        }
+
+        private void fillRecord(int i) {
+            record.clear();
+            record.putLong(keys[i]).putInt(rows[i]).putInt(counts[i])
+                    .putDouble(sums[i]).putDouble(mins[i]).putDouble(maxs[i]);
+            record.flip();
+        }
+
+        private static void writeHeader(FileChannel channel) throws IOException {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(RECORD_SIZE);
+            header.flip();
+            long position = 0;
+            while (header.hasRemaining()) {
+                position += channel.write(header, position);
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.waterbear.loglibrary.plot;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Serves logs from memory-mapped {@link LogSegment} files in a directory, one file per button
+ * named {@code <buttonId>.seg}. Segments are mapped on first use and remapped when a
+ * {@link LogSegmentWriter} has appended to them since.
+ */
+public class SegmentLogSource implements LogSource {
+
+    private final File directory;
+    private final Map<Integer, LogSegment> segments = new HashMap<>();
+
+    public SegmentLogSource(File directory) {
+        this.directory = directory;
+    }
+
+    public File getSegmentFile(int buttonId) {
+        return new File(directory, buttonId + ".seg");
+    }
+
+    /**
+     * @return writer appending to the button's segment, which is created if missing
+     */
+    public LogSegmentWriter openWriter(int buttonId) throws IOException {
+        return new LogSegmentWriter(getSegmentFile(buttonId));
+    }
+
+    @Override
+    public LogCursor query(int buttonId, long afterMillis, long untilMillis) {
+        try {
+            LogSegment segment = segmentFor(buttonId);
+            if (segment == null) {
+                return new InMemoryLogSource().query(buttonId, afterMillis, untilMillis);
+            }
+            segment.remap();
+            return segment.query(afterMillis, untilMillis);
+        } catch (IOException e) {
+            throw new IllegalStateException(e.getLocalizedMessage());
+        }
+    }
+
+    private synchronized LogSegment segmentFor(int buttonId) throws IOException {
+        LogSegment segment = segments.get(buttonId);
+        if (segment == null) {
+            File file = getSegmentFile(buttonId);
+            if (!file.exists()) return null;
+            segment = new LogSegment(file);
+            segments.put(buttonId, segment);
+        }
+        return segment;
+    }
+}
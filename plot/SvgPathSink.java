@@ -0,0 +1,69 @@
+package com.waterbear.loglibrary.plot;
+
+/**
+ * {@link PathSink} that writes the path data of an SVG {@code <path>} element, e.g.
+ * {@code M0 10L5 12C6 12 7 14 8 14}; see {@link #toString()}.
+ */
+public class SvgPathSink implements PathSink {
+
+    public static final Factory FACTORY = new Factory() {
+        @Override
+        public PathSink create() {
+            return new SvgPathSink();
+        }
+    };
+
+    private final StringBuilder data = new StringBuilder();
+
+    @Override
+    public void moveTo(float x, float y) {
+        data.append('M');
+        append(x, y);
+    }
+
+    @Override
+    public void lineTo(float x, float y) {
+        data.append('L');
+        append(x, y);
+    }
+
+    @Override
+    public void cubicTo(float x1, float y1, float x2, float y2, float x3, float y3) {
+        data.append('C');
+        append(x1, y1);
+        data.append(' ');
+        append(x2, y2);
+        data.append(' ');
+        append(x3, y3);
+    }
+
+    @Override
+    public void rewind() {
+        data.setLength(0);
+    }
+
+    private void append(float x, float y) {
+        append(x);
+        data.append(' ');
+        append(y);
+    }
+
+    /**
+     * Whole numbers, as plot positions mostly are, without the trailing ".0".
+     */
+    private void append(float value) {
+        if (value == (int) value) {
+            data.append((int) value);
+        } else {
+            data.append(value);
+        }
+    }
+
+    /**
+     * @return path data for the {@code d} attribute of an SVG {@code <path>}
+     */
+    @Override
+    public String toString() {
+        return data.toString();
+    }
+}
@@ -0,0 +1,44 @@
+package com.waterbear.loglibrary.plot;
+
+/**
+ * A pair of flat float buffers, one published for drawing and one being refilled. Refills
+ * reuse the back buffer, which only grows when a recompute needs more room than any before
+ * it, and {@link #publish(int)} swaps the two so whatever still holds the previous front
+ * buffer can finish drawing from it.
+ */
+final class SwapBuffer {
+    private static final float[] EMPTY = new float[0];
+
+    private float[] front = EMPTY;
+    private float[] back = EMPTY;
+    private int frontSize = 0;
+
+    /**
+     * @return back buffer with room for at least {@code length} floats; its contents are
+     * left over from an earlier recompute.
+     */
+    float[] acquire(int length) {
+        if (back.length < length) {
+            back = new float[Math.max(length, back.length + (back.length >> 1))];
+        }
+        return back;
+    }
+
+    /**
+     * Make the back buffer, filled with {@code size} floats, the front buffer.
+     */
+    void publish(int size) {
+        float[] published = back;
+        back = front;
+        front = published;
+        frontSize = size;
+    }
+
+    float[] getFront() {
+        return front;
+    }
+
+    int getFrontSize() {
+        return frontSize;
+    }
+}
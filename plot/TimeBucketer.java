@@ -0,0 +1,94 @@
+package com.waterbear.loglibrary.plot;
+
+/**
+ * Assigns logs to hour, day, ISO week or month buckets of the time in the timezone each log
+ * was made in, i.e. its epoch milliseconds plus its recorded timezone offset. Because buckets
+ * are cut in that local wall-clock time, days spanning a DST change still get all of their
+ * logs, whether they lasted 23 or 25 hours.
+ * <p/>
+ * A bucketer remembers the local boundaries of the last month it returned, so for rows
+ * arriving in time order each month lookup is a comparison against those until a row crosses
+ * into the next month; hours, days and weeks have fixed widths and are simply divided.
+ * Nothing is allocated per row.
+ */
+public final class TimeBucketer {
+
+    public enum Resolution {
+        HOUR, DAY, WEEK, MONTH;
+
+        /**
+         * @return bucket key of a local time: hours or days since the epoch, weeks since the
+         * Monday before the epoch, or months since year 0.
+         */
+        public long bucketOf(long localMillis) {
+            switch (this) {
+                case HOUR:
+                    return EpochDays.floorDiv(localMillis, MILLIS_PER_HOUR);
+                case DAY:
+                    return EpochDays.ofLocalMillis(localMillis);
+                case WEEK:
+                    return EpochDays.floorDiv(EpochDays.ofLocalMillis(localMillis) + 3, 7);
+                default:
+                    return EpochDays.monthOf(EpochDays.ofLocalMillis(localMillis));
+            }
+        }
+
+        /**
+         * @return local time, in milliseconds, at which a bucket starts
+         */
+        public long startOf(long bucket) {
+            switch (this) {
+                case HOUR:
+                    return bucket * MILLIS_PER_HOUR;
+                case DAY:
+                    return bucket * EpochDays.MILLIS_PER_DAY;
+                case WEEK:
+                    return (bucket * 7 - 3) * EpochDays.MILLIS_PER_DAY;
+                default:
+                    long year = EpochDays.floorDiv(bucket, 12);
+                    return EpochDays.of((int) year, (int) (bucket - year * 12), 1)
+                            * EpochDays.MILLIS_PER_DAY;
+            }
+        }
+
+        /**
+         * @return epoch day on which a bucket starts; hours start on the day they fall in
+         */
+        public long firstDayOf(long bucket) {
+            return EpochDays.ofLocalMillis(startOf(bucket));
+        }
+    }
+
+    static final long MILLIS_PER_HOUR = 60L * 60 * 1000;
+
+    private final Resolution resolution;
+    private long bucket;
+    private long bucketStart = Long.MAX_VALUE;
+    private long bucketEnd = Long.MIN_VALUE;
+
+    public TimeBucketer(Resolution resolution) {
+        this.resolution = resolution;
+    }
+
+    public Resolution getResolution() {
+        return resolution;
+    }
+
+    /**
+     * @param millis         epoch milliseconds of a log
+     * @param timezoneOffset offset of the timezone the log was made in
+     * @return bucket key
+     */
+    public long bucketOf(long millis, long timezoneOffset) {
+        long local = millis + timezoneOffset;
+        if (resolution != Resolution.MONTH) {
+            return resolution.bucketOf(local);
+        }
+        if (local < bucketStart || local >= bucketEnd) {
+            bucket = resolution.bucketOf(local);
+            bucketStart = resolution.startOf(bucket);
+            bucketEnd = resolution.startOf(bucket + 1);
+        }
+        return bucket;
+    }
+}
@@ -0,0 +1,201 @@
+package com.waterbear.loglibrary.plot;
+
+import java.util.Arrays;
+import java.util.TreeMap;
+
+/**
+ * Multi-resolution index over one button's logs. Logs are counted into hourly buckets of the
+ * time in the timezone each log was made in. Hours are grouped into chunks of
+ * {@value #CHUNK_HOURS}, and the hours of a chunk form the leaves of a segment tree whose
+ * inner nodes hold the combined aggregates of their children. The log count and the count,
+ * sum, min and max of non-null quantities of any run of hours, be it a day, a week, a month or
+ * an arbitrary window, are therefore combined from O(log n) nodes of the chunks at either end
+ * and the roots of the chunks in between.
+ * <p/>
+ * Only chunks holding at least one log are allocated, so a log with an outlying timestamp,
+ * e.g. one from a clock that was reset to the epoch, costs one chunk instead of a tree
+ * spanning every hour in between. Adding a log is O(log n).
+ */
+public class TimeIndex {
+
+    static final int CHUNK_BITS = 8;
+    static final int CHUNK_HOURS = 1 << CHUNK_BITS;
+
+    private final TreeMap<Long, Chunk> chunks = new TreeMap<>();
+
+    /**
+     * Index every log of a button.
+     */
+    public static TimeIndex build(LogSource source, int buttonId) {
+        return build(source, buttonId, Long.MIN_VALUE, LogSource.UNBOUNDED);
+    }
+
+    /**
+     * Index the logs of a button with {@code afterMillis < time <= untilMillis}.
+     */
+    public static TimeIndex build(LogSource source, int buttonId, long afterMillis,
+                                  long untilMillis) {
+        TimeIndex index = new TimeIndex();
+        TimeBucketer hours = new TimeBucketer(TimeBucketer.Resolution.HOUR);
+        LogSource.LogCursor c = source.query(buttonId, afterMillis, untilMillis);
+        try {
+            Chunk chunk = null;
+            while (c.moveToNext()) {
+                long hour = hours.bucketOf(c.getMillis(), c.getTimezoneOffset());
+                if (chunk == null || chunk.number != hour >> CHUNK_BITS) {
+                    chunk = index.chunkFor(hour);
+                }
+                chunk.fold(leafOf(hour), c.isQuantityNull() ? Double.NaN : c.getQuantity());
+            }
+        } finally {
+            c.close();
+        }
+        for (Chunk chunk : index.chunks.values()) {
+            chunk.buildInnerNodes();
+        }
+        return index;
+    }
+
+    /**
+     * @return hour since the epoch containing the given local time
+     */
+    public static long hourOf(long localMillis) {
+        return TimeBucketer.Resolution.HOUR.bucketOf(localMillis);
+    }
+
+    /**
+     * Add a newly written log.
+     *
+     * @param quantity quantity, or {@link Double#NaN} for a log without one
+     */
+    public synchronized void add(long millis, long timezoneOffset, double quantity) {
+        long hour = hourOf(millis + timezoneOffset);
+        Chunk chunk = chunkFor(hour);
+        int node = leafOf(hour);
+        chunk.fold(node, quantity);
+        for (node >>= 1; node > 0; node >>= 1) {
+            chunk.combine(node);
+        }
+    }
+
+    /**
+     * Combine the hours {@code fromHour <= hour < toHour} and, if any log falls in them, merge
+     * the result into the group {@code key} of {@code into}, column 0.
+     *
+     * @return number of logs in the hours
+     */
+    public synchronized int query(long fromHour, long toHour, GroupByAggregator into, long key) {
+        if (chunks.isEmpty() || fromHour >= toHour) return 0;
+
+        Totals totals = new Totals();
+        for (Chunk chunk : chunks.subMap(fromHour >> CHUNK_BITS, true,
+                (toHour - 1) >> CHUNK_BITS, true).values()) {
+            long first = chunk.number << CHUNK_BITS;
+            int lo = (int) (Math.max(fromHour, first) - first);
+            int hi = (int) (Math.min(toHour, first + CHUNK_HOURS) - first);
+            chunk.query(lo, hi, totals);
+        }
+
+        if (totals.rows > 0) {
+            int group = into.addRows(key, totals.rows);
+            into.merge(group, 0, totals.count, totals.sum, totals.min, totals.max);
+        }
+        return totals.rows;
+    }
+
+    /**
+     * @return node index of the leaf for an hour within its chunk
+     */
+    private static int leafOf(long hour) {
+        return (int) (hour & (CHUNK_HOURS - 1)) + CHUNK_HOURS;
+    }
+
+    private Chunk chunkFor(long hour) {
+        long number = hour >> CHUNK_BITS;
+        Chunk chunk = chunks.get(number);
+        if (chunk == null) {
+            chunk = new Chunk(number);
+            chunks.put(number, chunk);
+        }
+        return chunk;
+    }
+
+    private static class Totals {
+        int rows = 0;
+        int count = 0;
+        double sum = 0;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * Segment tree over the {@value #CHUNK_HOURS} hours starting at hour
+     * {@code number * CHUNK_HOURS}; node 1 is the root and the leaves follow the inner nodes.
+     */
+    private static class Chunk {
+        final long number;
+        final int[] rows = new int[2 * CHUNK_HOURS];
+        final int[] counts = new int[2 * CHUNK_HOURS];
+        final double[] sums = new double[2 * CHUNK_HOURS];
+        final double[] mins = new double[2 * CHUNK_HOURS];
+        final double[] maxs = new double[2 * CHUNK_HOURS];
+
+        Chunk(long number) {
+            this.number = number;
+            Arrays.fill(mins, Double.POSITIVE_INFINITY);
+            Arrays.fill(maxs, Double.NEGATIVE_INFINITY);
+        }
+
+        void fold(int leaf, double quantity) {
+            rows[leaf]++;
+            if (!Double.isNaN(quantity)) {
+                counts[leaf]++;
+                sums[leaf] += quantity;
+                mins[leaf] = Math.min(mins[leaf], quantity);
+                maxs[leaf] = Math.max(maxs[leaf], quantity);
+            }
+        }
+
+        /**
+         * Combine the hours {@code lo <= hour < hi} of the chunk into {@code totals}.
+         */
+        void query(int lo, int hi, Totals totals) {
+            int l = lo + CHUNK_HOURS;
+            int r = hi + CHUNK_HOURS;
+            while (l < r) {
+                if ((l & 1) == 1) {
+                    add(l++, totals);
+                }
+                if ((r & 1) == 1) {
+                    add(--r, totals);
+                }
+                l >>= 1;
+                r >>= 1;
+            }
+        }
+
+        private void add(int node, Totals totals) {
+            totals.rows += rows[node];
+            totals.count += counts[node];
+            totals.sum += sums[node];
+            totals.min = Math.min(totals.min, mins[node]);
+            totals.max = Math.max(totals.max, maxs[node]);
+        }
+
+        void buildInnerNodes() {
+            for (int node = CHUNK_HOURS - 1; node > 0; node--) {
+                combine(node);
+            }
+        }
+
+        void combine(int node) {
+            int a = 2 * node;
+            int b = a + 1;
+            rows[node] = rows[a] + rows[b];
+            counts[node] = counts[a] + counts[b];
+            sums[node] = sums[a] + sums[b];
+            mins[node] = Math.min(mins[a], mins[b]);
+            maxs[node] = Math.max(maxs[a], maxs[b]);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.waterbear.loglibrary.plot;
+
+import com.google.visualization.datasource.datatable.value.DateValue;
+import com.google.visualization.datasource.datatable.value.ValueType;
+
+/**
+ * Domain object that represents weekly sums of weeks starting on Monday. Each bucket is
+ * represented by the date it starts on, so series arguments are epoch days and the domain
+ * plots on a date axis.
+ */
+public class WeeklySumDomain extends IndexedSumDomain<DateValue> {
+
+    public WeeklySumDomain(DateValue low, DateValue high, TimeIndex index) {
+        super(low, high, index);
+    }
+
+    @Override
+    protected long bucketOf(DateValue limit) {
+        return TimeBucketer.Resolution.WEEK.bucketOf(EpochDays.of(limit) * EpochDays.MILLIS_PER_DAY);
+    }
+
+    @Override
+    protected long firstHourOf(long bucket) {
+        return TimeBucketer.Resolution.HOUR.bucketOf(TimeBucketer.Resolution.WEEK.startOf(bucket));
+    }
+
+    @Override
+    protected double argumentOf(long bucket) {
+        return TimeBucketer.Resolution.WEEK.firstDayOf(bucket);
+    }
+
+    @Override
+    protected DateValue valueOf(long bucket) {
+        return EpochDays.toDateValue(TimeBucketer.Resolution.WEEK.firstDayOf(bucket));
+    }
+
+    @Override
+    protected ValueType getArgumentType() {
+        return ValueType.DATE;
+    }
+}
@@ -0,0 +1,69 @@
+package com.waterbear.loglibrary.plot;
+
+import com.google.visualization.datasource.datatable.value.DateValue;
+
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BatchDomainLoaderTest {
+
+    private static final DateValue LOW = new DateValue(2015, 2, 1);
+    private static final DateValue HIGH = new DateValue(2015, 2, 8);
+    private static final long MARCH_1 = EpochDays.of(LOW) * EpochDays.MILLIS_PER_DAY;
+    private static final long HOUR = 60L * 60 * 1000;
+
+    private static InMemoryLogSource logs() {
+        InMemoryLogSource logs = new InMemoryLogSource();
+        for (int i = 0; i < 48; i++) {
+            logs.add(1, MARCH_1 + i * HOUR + 1, 0, 1);
+            logs.add(2, MARCH_1 + i * 3 * HOUR + 1, 0, 2);
+        }
+        logs.addWithoutQuantity(2, MARCH_1 + 5 * HOUR, 0);
+        return logs;
+    }
+
+    private static void assertSameSeries(ColumnarSeriesData expected, ColumnarSeriesData actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int row = 0; row < expected.size(); row++) {
+            assertEquals(expected.getArgument(row), actual.getArgument(row), 0);
+            assertEquals(expected.isNull(0, row), actual.isNull(0, row));
+            assertEquals(expected.getValue(0, row), actual.getValue(0, row), 1e-9);
+        }
+    }
+
+    @Test
+    public void batchMatchesLoadingEachButton() {
+        InMemoryLogSource source = logs();
+        Map<Integer, DailySumDomain> domains = new BatchDomainLoader(source)
+                .loadDailySums(new int[]{2, 1, 2}, LOW, HIGH);
+
+        assertEquals(2, domains.size());
+        for (int id : new int[]{1, 2}) {
+            DailySumDomain single = new DailySumDomain(LOW, HIGH, source, id);
+            single.load();
+            DailySumDomain batched = domains.get(id);
+            assertSameSeries(single.getSeries(), batched.getSeries());
+            assertEquals(single.getWatermark(), batched.getWatermark());
+        }
+    }
+
+    @Test
+    public void batchedDomainsRefreshIncrementally() {
+        InMemoryLogSource source = logs();
+        DailySumDomain domain = new BatchDomainLoader(source)
+                .loadDailySums(new int[]{1}, LOW, HIGH).get(1);
+        long watermark = domain.getWatermark();
+
+        source.add(1, watermark + HOUR, 0, 5);
+        domain.refresh();
+        assertTrue(domain.getWatermark() > watermark);
+
+        DailySumDomain single = new DailySumDomain(LOW, HIGH, source, 1);
+        single.load();
+        assertSameSeries(single.getSeries(), domain.getSeries());
+    }
+}
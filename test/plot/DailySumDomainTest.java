@@ -0,0 +1,162 @@
+package com.waterbear.loglibrary.plot;
+
+import com.google.visualization.datasource.datatable.value.DateValue;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DailySumDomainTest {
+
+    private static final int BUTTON = 3;
+    private static final DateValue LOW = new DateValue(2015, 2, 1);
+    private static final DateValue HIGH = new DateValue(2015, 2, 8);
+    private static final long MARCH_1 = EpochDays.of(LOW) * EpochDays.MILLIS_PER_DAY;
+    private static final long HOUR = 60L * 60 * 1000;
+
+    private static double total(Domain domain) {
+        ColumnarSeriesData series = domain.getSeries();
+        double sum = 0;
+        for (int row = 0; row < series.size(); row++) {
+            if (!series.isNull(0, row)) sum += series.getValue(0, row);
+        }
+        return sum;
+    }
+
+    @Test
+    public void refreshSeesLogsAtTheWatermark() {
+        InMemoryLogSource source = new InMemoryLogSource();
+        source.add(BUTTON, MARCH_1 + HOUR, 0, 1);
+        source.add(BUTTON, MARCH_1 + 2 * HOUR, 0, 2);
+        DailySumDomain domain = new DailySumDomain(LOW, HIGH, source, BUTTON);
+        domain.load();
+
+        source.add(BUTTON, MARCH_1 + 2 * HOUR, 0, 4);
+        domain.refresh();
+        assertEquals(7, total(domain), 0);
+
+        source.add(BUTTON, MARCH_1 + 2 * HOUR, 0, 8);
+        source.add(BUTTON, MARCH_1 + 3 * HOUR, 0, 16);
+        domain.refresh();
+        assertEquals(31, total(domain), 0);
+        domain.refresh();
+        assertEquals(31, total(domain), 0);
+    }
+
+    @Test
+    public void changedLogsForceAFullLoad() {
+        InMemoryLogSource source = new InMemoryLogSource();
+        source.add(BUTTON, MARCH_1 + 2 * HOUR, 0, 2);
+        DailySumDomain domain = new DailySumDomain(LOW, HIGH, source, BUTTON);
+        domain.load();
+
+        source.add(BUTTON, MARCH_1 + HOUR, 0, 1);
+        domain.refresh();
+        assertEquals(2, total(domain), 0);
+
+        domain.onLogsChanged();
+        domain.refresh();
+        assertEquals(3, total(domain), 0);
+    }
+
+    /**
+     * Source whose cursors give up after a number of rows, like a load that was cancelled.
+     */
+    private static class CancellingSource implements LogSource {
+        final LogSource logs;
+        int rowsLeft = Integer.MAX_VALUE;
+
+        CancellingSource(LogSource logs) {
+            this.logs = logs;
+        }
+
+        @Override
+        public LogCursor query(int buttonId, long afterMillis, long untilMillis) {
+            final LogCursor c = logs.query(buttonId, afterMillis, untilMillis);
+            return new LogCursor() {
+                @Override
+                public boolean moveToNext() {
+                    if (rowsLeft-- == 0) throw new CancellationException("domain load cancelled");
+                    return c.moveToNext();
+                }
+
+                @Override
+                public long getMillis() {
+                    return c.getMillis();
+                }
+
+                @Override
+                public long getTimezoneOffset() {
+                    return c.getTimezoneOffset();
+                }
+
+                @Override
+                public boolean isQuantityNull() {
+                    return c.isQuantityNull();
+                }
+
+                @Override
+                public double getQuantity() {
+                    return c.getQuantity();
+                }
+
+                @Override
+                public void close() {
+                    c.close();
+                }
+            };
+        }
+    }
+
+    @Test
+    public void cancelledLoadLeavesTheDomainUnloaded() {
+        InMemoryLogSource logs = new InMemoryLogSource();
+        for (int i = 0; i < 4; i++) {
+            logs.add(BUTTON, MARCH_1 + (i + 1) * HOUR, 0, 1);
+        }
+        CancellingSource source = new CancellingSource(logs);
+        DailySumDomain domain = new DailySumDomain(LOW, HIGH, source, BUTTON);
+        domain.load();
+
+        source.rowsLeft = 2;
+        boolean cancelled = false;
+        try {
+            domain.load();
+        } catch (CancellationException e) {
+            cancelled = true;
+        }
+        assertTrue(cancelled);
+
+        source.rowsLeft = Integer.MAX_VALUE;
+        domain.refresh();
+        assertEquals(4, total(domain), 0);
+    }
+
+    @Test
+    public void rollupsAreReadUpToTheUpperLimit() throws IOException {
+        File directory = File.createTempFile("rollups", "");
+        if (!directory.delete() || !directory.mkdir()) throw new IOException("no temp dir");
+        try {
+            RollupStore rollups = new RollupStore(directory);
+            rollups.record(BUTTON, MARCH_1 + HOUR, 0, 1);
+            rollups.record(BUTTON, MARCH_1 + 7 * 24 * HOUR + HOUR, 0, 2);
+            rollups.record(BUTTON, MARCH_1 + 8 * 24 * HOUR + HOUR, 0, 4);
+            DailySumDomain domain = new DailySumDomain(LOW, HIGH, new InMemoryLogSource(), BUTTON)
+                    .setRollupStore(rollups);
+            domain.load();
+            assertEquals(3, total(domain), 0);
+            assertEquals(Long.MIN_VALUE, domain.getWatermark());
+        } finally {
+            File[] files = directory.listFiles();
+            if (files != null) {
+                for (File f : files) f.delete();
+            }
+            directory.delete();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.waterbear.loglibrary.plot;
+
+import com.google.visualization.datasource.datatable.DataTable;
+import com.google.visualization.datasource.datatable.value.DateValue;
+import com.google.visualization.datasource.datatable.value.NumberValue;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class DomainCacheTest {
+
+    private static final NumberValue LOW = new NumberValue(0);
+    private static final NumberValue HIGH = new NumberValue(1);
+
+    /**
+     * Domain whose load blocks until released, counting how often it loads.
+     */
+    private static class BlockingDomain extends Domain<NumberValue, NumberValue> {
+        private final AtomicInteger loads;
+        private final CountDownLatch started;
+        private final CountDownLatch release;
+
+        BlockingDomain(AtomicInteger loads, CountDownLatch started, CountDownLatch release) {
+            super(LOW, HIGH);
+            this.loads = loads;
+            this.started = started;
+            this.release = release;
+        }
+
+        @Override
+        protected NumberValue[] getRange(DataTable table) {
+            return new NumberValue[]{null, null};
+        }
+
+        @Override
+        protected ColumnarSeriesData createSeries() {
+            return new ColumnarSeriesData.Builder(1).build();
+        }
+
+        @Override
+        protected DataTable loadData() {
+            loads.incrementAndGet();
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e.getLocalizedMessage());
+            }
+            return new DataTable();
+        }
+    }
+
+    private static Thread loadInBackground(final DomainCache cache, final Domain domain,
+                                           final Domain[] result, final int at) {
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                result[at] = cache.load(domain, 1);
+            }
+        };
+        thread.start();
+        return thread;
+    }
+
+    @Test
+    public void concurrentMissesLoadOnce() throws InterruptedException {
+        DomainCache cache = new DomainCache(8, Long.MAX_VALUE);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Domain[] result = new Domain[2];
+
+        Thread first = loadInBackground(cache,
+                new BlockingDomain(loads, started, release), result, 0);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Thread second = loadInBackground(cache,
+                new BlockingDomain(loads, started, release), result, 1);
+        while (cache.getHitCount() == 0 && loads.get() < 2) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+        first.join();
+        second.join();
+
+        assertEquals(1, loads.get());
+        assertSame(result[0], result[1]);
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void invalidationDuringLoadIsNotCached() throws InterruptedException {
+        DomainCache cache = new DomainCache(8, Long.MAX_VALUE);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Domain[] result = new Domain[1];
+
+        Thread first = loadInBackground(cache,
+                new BlockingDomain(loads, started, release), result, 0);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        cache.invalidate(1);
+        release.countDown();
+        first.join();
+
+        assertEquals(0, cache.size());
+        cache.load(new BlockingDomain(loads, started, release), 1);
+        assertEquals(2, loads.get());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void domainsOfOtherSourcesDoNotCollide() {
+        DomainCache cache = new DomainCache(8, Long.MAX_VALUE);
+        DateValue low = new DateValue(2015, 2, 1);
+        DateValue high = new DateValue(2015, 2, 8);
+        InMemoryLogSource source = new InMemoryLogSource();
+
+        Domain first = cache.load(new DailySumDomain(low, high, source, 1), 1);
+        assertSame(first, cache.load(new DailySumDomain(low, high, source, 1), 1));
+        assertNotSame(first, cache.load(new DailySumDomain(low, high, new InMemoryLogSource(), 1), 1));
+        assertEquals(2, cache.size());
+        assertTrue(!DomainCache.Key.of(first, 1).equals(DomainCache.Key.of(
+                new DailySumDomain(low, high, source, 1).setStreaming(false), 1)));
+    }
+
+    @Test
+    public void cachedDomainsCanNotBeRefreshed() {
+        DomainCache cache = new DomainCache(8, Long.MAX_VALUE);
+        Domain domain = cache.load(new BlockingDomain(new AtomicInteger(),
+                new CountDownLatch(1), new CountDownLatch(0)), 1);
+        boolean refused = false;
+        try {
+            domain.refresh();
+        } catch (IllegalStateException e) {
+            refused = true;
+        }
+        assertTrue(refused);
+    }
+}
@@ -0,0 +1,82 @@
+package com.waterbear.loglibrary.plot;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class PathGeneratorTest {
+
+    private static PathGenerator[] newGenerators() {
+        return new PathGenerator[]{
+                new PathGenerator.LinePath(),
+                new PathGenerator.NoPath(),
+                new PathGenerator.SmoothedStepPath(),
+                new PathGenerator.SmoothedFunctionPath(0.3)};
+    }
+
+    private static float[] randomPoints(Random random, int count) {
+        float[] points = new float[2 * count];
+        for (int i = 0; i < count; i++) {
+            points[2 * i] = 10 * i + random.nextInt(5);
+            points[2 * i + 1] = random.nextInt(200);
+        }
+        return points;
+    }
+
+    private static float[] controlPoints(PathGenerator generator) {
+        return Arrays.copyOf(generator.getControlPoints(), generator.getControlPointsSize());
+    }
+
+    /**
+     * Appending to a series that grew, with its last point moved, gives the same control
+     * points and path as generating it anew.
+     */
+    @Test
+    public void appendMatchesGenerate() {
+        Random random = new Random(21);
+        for (int t = 0; t < 200; t++) {
+            int count = 2 + random.nextInt(30);
+            int grown = count + random.nextInt(5);
+            float[] points = randomPoints(random, grown);
+            float[] before = Arrays.copyOf(points, 2 * count);
+            before[2 * count - 1] += 7;
+
+            PathGenerator[] appended = newGenerators();
+            PathGenerator[] generated = newGenerators();
+            for (int g = 0; g < appended.length; g++) {
+                appended[g].setSinkFactory(SvgPathSink.FACTORY);
+                generated[g].setSinkFactory(SvgPathSink.FACTORY);
+                appended[g].generate(before, count);
+                appended[g].append(points, grown, count - 1);
+                generated[g].generate(points, grown);
+
+                assertArrayEquals(controlPoints(generated[g]), controlPoints(appended[g]), 0);
+                assertEquals(String.valueOf(generated[g].getPathSink()),
+                        String.valueOf(appended[g].getPathSink()));
+            }
+        }
+    }
+
+    /**
+     * Control points handed out for the last result are not written to by the next append.
+     */
+    @Test
+    public void appendKeepsLastResult() {
+        Random random = new Random(3);
+        float[] points = randomPoints(random, 40);
+        PathGenerator generator = new PathGenerator.SmoothedFunctionPath(0.3)
+                .setSinkFactory(PathCommandBuffer.FACTORY);
+        generator.generate(points, 30);
+        float[] published = generator.getControlPoints();
+        float[] copy = controlPoints(generator);
+
+        points[2 * 29 + 1] += 5;
+        generator.append(points, 40, 29);
+
+        assertArrayEquals(copy, Arrays.copyOf(published, copy.length), 0);
+    }
+}
@@ -0,0 +1,115 @@
+package com.waterbear.loglibrary.plot;
+
+import com.google.visualization.datasource.datatable.DataTable;
+import com.google.visualization.datasource.datatable.value.DateValue;
+import com.google.visualization.datasource.datatable.value.NumberValue;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class PointTemplateTest {
+
+    /**
+     * Domain serving fixed series, such as one with no logs in its window.
+     */
+    private static class FixedDomain extends Domain<DateValue, NumberValue> {
+        private ColumnarSeriesData series;
+
+        FixedDomain(ColumnarSeriesData series) {
+            super(null, null);
+            this.series = series;
+        }
+
+        @Override
+        protected NumberValue[] getRange(DataTable table) {
+            return new NumberValue[]{null, null};
+        }
+
+        @Override
+        protected ColumnarSeriesData createSeries() {
+            return series;
+        }
+
+        @Override
+        protected DataTable loadData() {
+            return new DataTable();
+        }
+    }
+
+    private static PointTemplate newTemplate() {
+        return new PointTemplate(new DisplayOptions(1, 1, 0, 0));
+    }
+
+    @Test
+    public void setSeriesAcceptsEmptyDomain() {
+        Domain domain = new FixedDomain(new ColumnarSeriesData.Builder(1).build()).load();
+        AxisAdapter domainAxis = new AxisAdapter.ExplodingAxisAdapter<DateValue>();
+        AxisAdapter rangeAxis = new AxisAdapter.ExplodingAxisAdapter<NumberValue>();
+        domainAxis.setBounds(0, 100);
+        rangeAxis.setBounds(0, 100);
+
+        PointTemplate template = newTemplate();
+        template.setSeries(domain, domainAxis, rangeAxis);
+
+        Plottable[] plottables = template.getPlottables();
+        assertEquals(1, plottables.length);
+        assertEquals(0, ((PointPlot) plottables[0]).getControlPointsSize());
+    }
+
+    @Test
+    public void setSeriesAcceptsAllNullSeries() {
+        ColumnarSeriesData.Builder series = new ColumnarSeriesData.Builder(1);
+        series.addRow(0);
+        series.addRow(1);
+        Domain domain = new FixedDomain(series.build()).load();
+        AxisAdapter domainAxis = new AxisAdapter.DiscreteAxisAdapter(2);
+        AxisAdapter rangeAxis = new AxisAdapter.ExplodingAxisAdapter<NumberValue>();
+        domainAxis.setBounds(0, 100);
+        rangeAxis.setBounds(0, 100);
+
+        PointTemplate template = newTemplate();
+        template.setSeries(domain, domainAxis, rangeAxis);
+
+        assertEquals(1, template.getPlottables().length);
+    }
+
+    private static ColumnarSeriesData rows(int count) {
+        ColumnarSeriesData.Builder series = new ColumnarSeriesData.Builder(1);
+        for (int i = 0; i < count; i++) {
+            series.setValue(series.addRow(i), 0, (i * 37) % 11);
+        }
+        return series.build();
+    }
+
+    private static float[] controlPoints(PointTemplate template) {
+        PointPlot plot = (PointPlot) template.getPlottables()[0];
+        return java.util.Arrays.copyOf(plot.getControlPoints(), plot.getControlPointsSize());
+    }
+
+    /**
+     * Setting a refreshed domain that grew at its end plots the same as setting it afresh.
+     */
+    @Test
+    public void setSeriesAfterGrowthMatchesFreshPlot() {
+        FixedDomain domain = new FixedDomain(rows(20));
+        domain.load();
+        AxisAdapter domainAxis = new AxisAdapter.DiscreteAxisAdapter(40);
+        AxisAdapter rangeAxis = new AxisAdapter.DiscreteAxisAdapter(11);
+        domainAxis.setBounds(0, 400);
+        rangeAxis.setBounds(0, 100);
+        PointTemplate template = newTemplate();
+        template.setSeries(domain, domainAxis, rangeAxis);
+        float[] before = controlPoints(template);
+
+        domain.series = rows(25);
+        domain.load();
+        template.setSeries(domain, domainAxis, rangeAxis);
+
+        PointTemplate fresh = newTemplate();
+        fresh.setSeries(domain, domainAxis, rangeAxis);
+        assertArrayEquals(controlPoints(fresh), controlPoints(template), 0);
+        assertEquals(4 * 20, before.length);
+    }
+}
@@ -0,0 +1,96 @@
+package com.waterbear.loglibrary.plot;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+
+public class SegmentLogSourceTest {
+
+    private static final int BUTTON = 7;
+
+    private File directory;
+    private SegmentLogSource source;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("segments", "");
+        if (!directory.delete() || !directory.mkdir()) throw new IOException("no temp dir");
+        source = new SegmentLogSource(directory);
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File f : files) f.delete();
+        }
+        directory.delete();
+    }
+
+    private double sum() {
+        LogSource.LogCursor logs = source.query(BUTTON, Long.MIN_VALUE, LogSource.UNBOUNDED);
+        double sum = 0;
+        while (logs.moveToNext()) {
+            sum += logs.getQuantity();
+        }
+        logs.close();
+        return sum;
+    }
+
+    private static InMemoryLogSource logs(int count, double quantity) {
+        InMemoryLogSource logs = new InMemoryLogSource();
+        for (int i = 0; i < count; i++) {
+            logs.add(BUTTON, 1000L * (i + 1), 0, quantity);
+        }
+        return logs;
+    }
+
+    private void rebuild(InMemoryLogSource logs) throws IOException {
+        LogSegmentWriter.rebuild(source.getSegmentFile(BUTTON),
+                logs.query(BUTTON, Long.MIN_VALUE, LogSource.UNBOUNDED));
+    }
+
+    @Test
+    public void appendedRecordsAreSeen() throws IOException {
+        rebuild(logs(10, 1));
+        assertEquals(10.0, sum(), 0);
+
+        LogSegmentWriter writer = source.openWriter(BUTTON);
+        writer.append(20000, 0, 5);
+        writer.close();
+        assertEquals(15.0, sum(), 0);
+    }
+
+    @Test
+    public void rebuildWithSameCountIsSeen() throws IOException {
+        rebuild(logs(10, 1));
+        assertEquals(10.0, sum(), 0);
+
+        rebuild(logs(10, 5));
+        assertEquals(50.0, sum(), 0);
+    }
+
+    @Test
+    public void rebuildWithOtherCountReindexes() throws IOException {
+        rebuild(logs(1000, 1));
+        assertEquals(1000.0, sum(), 0);
+
+        InMemoryLogSource shifted = new InMemoryLogSource();
+        for (int i = 0; i < 1500; i++) {
+            shifted.add(BUTTON, 500000L + 1000L * i, 0, 2);
+        }
+        rebuild(shifted);
+        assertEquals(3000.0, sum(), 0);
+
+        LogSource.LogCursor window = source.query(BUTTON, 500000L + 1000L * 199, 500000L + 1000L * 299);
+        int count = 0;
+        while (window.moveToNext()) count++;
+        window.close();
+        assertEquals(100, count);
+    }
+}
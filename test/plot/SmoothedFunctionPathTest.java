@@ -0,0 +1,239 @@
+package com.waterbear.loglibrary.plot;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertTrue;
+
+public class SmoothedFunctionPathTest {
+
+    /**
+     * The trig-free control points must match the angle based ones on random series with
+     * repeated, level, collinear and vertical runs.
+     */
+    @Test
+    public void controlPointsMatchLegacy() {
+        Random random = new Random(1);
+        for (int t = 0; t < 2000; t++) {
+            int count = 2 + random.nextInt(50);
+            float[] points = new float[2 * count];
+            float x = 0;
+            for (int i = 0; i < count; i++) {
+                int mode = random.nextInt(6);
+                x += mode == 0 ? 0 : random.nextInt(20);
+                points[2 * i] = x;
+                if (mode == 1 && i > 0) {
+                    points[2 * i + 1] = points[2 * i - 1];
+                } else if (mode == 2 && i > 1) {
+                    points[2 * i + 1] = 2 * points[2 * i - 1] - points[2 * i - 3];
+                } else {
+                    points[2 * i + 1] = random.nextInt(200);
+                }
+            }
+            double severity = 0.3 + random.nextDouble();
+            float difference = compareWithLegacy(points, count, severity);
+            assertTrue("series " + t + " differs by " + difference,
+                    difference <= 1e-4f * (1 + x + 200));
+        }
+    }
+
+    /**
+     * @return largest absolute difference between any control point coordinate of the current
+     * and the legacy implementation
+     */
+    private static float compareWithLegacy(float[] points, int count, double severity) {
+        PathGenerator current = new PathGenerator.SmoothedFunctionPath(severity)
+                .setSinkFactory(PathCommandBuffer.FACTORY).generate(points, count);
+        PathGenerator legacy = new LegacySmoothedFunctionPath(severity)
+                .setSinkFactory(PathCommandBuffer.FACTORY).generate(points, count);
+        float[] a = current.getControlPoints();
+        float[] b = legacy.getControlPoints();
+        float max = 0;
+        for (int i = 0, n = current.getControlPointsSize(); i < n; i++) {
+            max = Math.max(max, Math.abs(a[i] - b[i]));
+        }
+        return max;
+    }
+
+    /**
+     * The original, angle based implementation of {@link PathGenerator.SmoothedFunctionPath},
+     * kept as the reference the current one is checked against.
+     */
+    private static class LegacySmoothedFunctionPath extends PathGenerator {
+        private final double scale;
+
+        LegacySmoothedFunctionPath(double severity) {
+            scale = severity;
+        }
+
+        @Override
+        public boolean createPathFromPoints(float[] points, int count, float[] controlPoints,
+                                            PathSink path) {
+            addCubics(points, count, controlPoints, path);
+            return true;
+        }
+
+        /**
+         * Calculates bezier control points that should surround each given point.
+         *
+         * @param points
+         * @return array of bezier control points where idx 0, 1, 2, and 3 correspond with
+         * control point 1 (cp1) x, cp1 y, cp2 x, and cp2 y.
+         */
+        @Override
+        public void createControlPoints(float[] points, int count, float[] control) {
+            //cover edge cases where control points are same as actual points
+            control[0] = points[0];
+            control[1] = points[1];
+            setHalfControlPoint(points, 0, 1, control, 2);
+
+            int lastIdx = count - 1;
+            setHalfControlPoint(points, lastIdx, lastIdx - 1, control, 4 * lastIdx);
+            control[4 * lastIdx + 2] = points[2 * lastIdx];
+            control[4 * lastIdx + 3] = points[2 * lastIdx + 1];
+
+            for (int i = 1; i < lastIdx; i++) {
+                float[] p2 = {points[2 * i], points[2 * i + 1]};
+                float[] p1 = {points[2 * i - 2], points[2 * i - 1]};
+                float[] p3 = {points[2 * i + 2], points[2 * i + 3]};
+
+                // length of vectors from point 2 to neighbor points
+                float[] v1 = new float[]{p1[0] - p2[0], p1[1] - p2[1]};
+                float[] v2 = new float[]{p3[0] - p2[0], p3[1] - p2[1]};
+                double m1 = Math.sqrt(Math.pow(v1[0], 2) + Math.pow(v1[1], 2));
+                double m2 = Math.sqrt(Math.pow(v2[0], 2) + Math.pow(v2[1], 2));
+                double ratio = m1 / (m1 + m2);
+
+                float crossProduct = v1[0] * v2[1] - v2[0] * v1[1];
+
+                // a scaled vector between tips of v2 and v2
+                double[] r = new double[]{(v2[0] - v1[0]) * ratio, (v2[1] - v1[1]) * ratio};
+
+                double theta;
+                if ((m1 + m2) == 0) {
+                    // all 3 points are the same
+                    control[4 * i] = p2[0];
+                    control[4 * i + 1] = p2[1];
+                    control[4 * i + 2] = p2[0];
+                    control[4 * i + 3] = p2[1];
+                } else {
+                    if (crossProduct == 0) {
+                        //vectors are parallel (3 points lie on a straight line)
+                        if (r[0] != 0) {
+                            theta = Math.atan(r[1] / r[0]);
+                        } else {
+                            // points lie on a vertical line
+                            theta = r[1] > 0 ? Math.PI : -Math.PI;
+                        }
+
+                    } else {
+                        double qx = v1[0] + r[0];
+                        double qy = v1[1] + r[1];
+                        // rotate vector 90 deg
+                        double qtx = -qy;
+                        double qty = qx;
+                        // qtx==0 only occurs when qty==0, which would result in theta== NaN, but
+                        // this possibility only occurs when points lie on the same line, (i.e.
+                        // cross product == 0), a case covered above.
+                        theta = Math.atan(qty / qtx);
+                    }
+
+
+                    double[] c1 = getControlPoints(theta, scale, p2, p1, p3);
+
+                    control[4 * i] = (float) c1[0];
+                    control[4 * i + 1] = (float) c1[1];
+                    control[4 * i + 2] = (float) c1[2];
+                    control[4 * i + 3] = (float) c1[3];
+                }
+
+
+            }
+        }
+
+        /**
+         * Makes a control point for the termination point of a path. Without a control
+         * control point on the termination point of a curve, the termination segment
+         * curve is dominated by the second-to-last point's control points, leading to
+         * a massive arch in some cases.
+         *
+         * @param begin index of the point at the start of the control point vector
+         * @param end   index of the point at the end of control point vector
+         * @param at    index in {@code control} to write the x, y of the control point to
+         */
+        private void setHalfControlPoint(float[] points, int begin, int end, float[] control,
+                                         int at) {
+
+            float vy = points[2 * end + 1] - points[2 * begin + 1];
+            float vx = points[2 * end] - points[2 * begin];
+
+            control[at] = points[2 * begin] + vx * (float) scale / 2;
+            control[at + 1] = points[2 * begin + 1] + vy * (float) scale / 2;
+
+
+        }
+
+
+        /**
+         * Get coordinates tip of a vector representing component of the vector between
+         * points o and point p that lies along an axis rotated by θ
+         *
+         * @param theta angle of axis offset from normal x axis
+         * @param o     origin of vector, x = o[0], y= o[1]
+         * @param p1    coordinate of tip of point 1
+         * @param p3    coordinate of tip of point 3
+         * @return
+         */
+        private double[] getControlPoints(double theta, double scale, float[] o, float[] p1, float[] p3) {
+            double[] result = new double[4];
+            //c1x =   S・(cos(θ)・vx + sin(θ)・vy )・cos(-θ)
+            //c1y = - S・(cos(θ)・vx + sin(θ)・vy )・sin(-θ)
+            //[where vx = px-ox and vy = py-oy]
+            double cosTheta = Math.cos(theta);
+            double sinTheta = Math.sin(theta);
+            double cosThetaN = Math.cos(-theta);
+            double sinThetaN = Math.sin(-theta);
+
+            // control 1
+            float vx = p1[0] - o[0];
+            float vy = p1[1] - o[1];
+            // magnitude of control point 1 on theta i axis
+            double vxp1 = scale * cosTheta * vx;
+            double commonTerm = vxp1 + scale * sinTheta * vy;
+            result[0] = commonTerm * cosThetaN;
+            result[1] = -commonTerm * sinThetaN;
+
+            // control 2
+            vx = p3[0] - o[0];
+            vy = p3[1] - o[1];
+            // magnitude of control point 2 on theta i axis
+            double vxp2 = scale * cosTheta * vx;
+            commonTerm = vxp2 + scale * sinTheta * vy;
+            result[2] = commonTerm * cosThetaN;
+            result[3] = -commonTerm * sinThetaN;
+
+            /*
+            //normalize control points to the same length
+            double c1 = Math.sqrt(result[0]*result[0] + result[1]*result[1]);
+            double c2 = Math.sqrt(result[2]*result[2] + result[3]*result[3]);
+            double ratio = Math.abs(c1) / Math.abs(c2);
+            if (ratio > 1) {
+                result[0] = result[0] / ratio;
+                result[1] = result[1] / ratio;
+            } else {
+                result[2] = result[2] * ratio;
+                result[3] = result[3] * ratio;
+            }
+            */
+
+            // translate vector back to o coordinate space
+            result[0] = result[0] + o[0];
+            result[1] = result[1] + o[1];
+            result[2] = result[2] + o[0];
+            result[3] = result[3] + o[1];
+            return result;
+        }
+
+    }
+}
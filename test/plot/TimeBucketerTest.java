@@ -0,0 +1,35 @@
+package com.waterbear.loglibrary.plot;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class TimeBucketerTest {
+
+    private static final long DAY = EpochDays.MILLIS_PER_DAY;
+
+    @Test
+    public void monthsInTimeOrderMatchDirectLookup() {
+        TimeBucketer bucketer = new TimeBucketer(TimeBucketer.Resolution.MONTH);
+        long offset = -5 * TimeBucketer.MILLIS_PER_HOUR;
+        long step = 7 * TimeBucketer.MILLIS_PER_HOUR;
+        for (long millis = -400 * DAY; millis < 800 * DAY; millis += step) {
+            assertEquals(TimeBucketer.Resolution.MONTH.bucketOf(millis + offset),
+                    bucketer.bucketOf(millis, offset));
+        }
+    }
+
+    @Test
+    public void monthsOutOfOrderMatchDirectLookup() {
+        TimeBucketer bucketer = new TimeBucketer(TimeBucketer.Resolution.MONTH);
+        Random random = new Random(6);
+        for (int i = 0; i < 10000; i++) {
+            long millis = (long) (random.nextDouble() * 20000 * DAY) - 10000 * DAY;
+            long offset = (random.nextInt(29) - 14) * TimeBucketer.MILLIS_PER_HOUR;
+            assertEquals(TimeBucketer.Resolution.MONTH.bucketOf(millis + offset),
+                    bucketer.bucketOf(millis, offset));
+        }
+    }
+}
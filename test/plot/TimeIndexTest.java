@@ -0,0 +1,63 @@
+package com.waterbear.loglibrary.plot;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class TimeIndexTest {
+
+    private static final long HOUR = TimeBucketer.MILLIS_PER_HOUR;
+
+    @Test
+    public void queriesMatchScanAcrossChunks() {
+        InMemoryLogSource source = new InMemoryLogSource();
+        Random random = new Random(8);
+        long[] hours = new long[3000];
+        double[] quantities = new double[hours.length];
+        for (int i = 0; i < hours.length; i++) {
+            hours[i] = 490000 + random.nextInt(5000);
+            quantities[i] = random.nextInt(4) == 0 ? Double.NaN : random.nextInt(100);
+            source.add(1, hours[i] * HOUR + random.nextInt((int) HOUR), 0, quantities[i]);
+        }
+        TimeIndex index = TimeIndex.build(source, 1);
+        for (int t = 0; t < 500; t++) {
+            long from = 489900 + random.nextInt(5200);
+            long to = from + random.nextInt(2000);
+            GroupByAggregator into = new GroupByAggregator(1);
+            int rows = index.query(from, to, into, 0);
+
+            int expectedRows = 0;
+            double expectedSum = 0;
+            for (int i = 0; i < hours.length; i++) {
+                if (hours[i] >= from && hours[i] < to) {
+                    expectedRows++;
+                    if (!Double.isNaN(quantities[i])) expectedSum += quantities[i];
+                }
+            }
+            assertEquals(expectedRows, rows);
+            if (rows > 0) {
+                int g = into.find(0);
+                assertEquals(expectedRows, into.getRowCount(g));
+                assertEquals(expectedSum, into.get(g, 0, GroupByAggregator.Aggregation.SUM), 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void outlyingTimestampsAreIndexed() {
+        InMemoryLogSource source = new InMemoryLogSource()
+                .add(1, 0, 0, 1)
+                .add(1, 490000 * HOUR, 0, 2)
+                .add(1, 253402300799000L, 0, 4);
+        TimeIndex index = TimeIndex.build(source, 1);
+        index.add(-HOUR, 0, 8);
+
+        GroupByAggregator into = new GroupByAggregator(1);
+        assertEquals(4, index.query(Long.MIN_VALUE, Long.MAX_VALUE, into, 0));
+        assertEquals(15, into.get(into.find(0), 0, GroupByAggregator.Aggregation.SUM), 0);
+        assertEquals(1, index.query(490000, 490001, into, 1));
+        assertEquals(0, index.query(1, 490000, into, 2));
+    }
+}